@@ -2,6 +2,7 @@ package com.zone01oujda.moblogging.admin.service;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.data.domain.Page;
@@ -26,12 +27,17 @@ import com.zone01oujda.moblogging.entity.Report;
 import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.exception.AccessDeniedException;
 import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
+import com.zone01oujda.moblogging.media.service.MediaStorageService;
 import com.zone01oujda.moblogging.post.enums.PostVisibility;
 import com.zone01oujda.moblogging.post.repository.PostRepository;
+import com.zone01oujda.moblogging.post.service.FeedService;
 import com.zone01oujda.moblogging.report.enums.ReportStatus;
 import com.zone01oujda.moblogging.report.repository.ReportRepository;
+import com.zone01oujda.moblogging.security.PrincipalCache;
 import com.zone01oujda.moblogging.user.enums.Role;
 import com.zone01oujda.moblogging.user.repository.UserRepository;
+import com.zone01oujda.moblogging.user.service.CloseFriendService;
+import com.zone01oujda.moblogging.user.service.FollowGraph;
 import com.zone01oujda.moblogging.util.SecurityUtil;
 
 /**
@@ -45,15 +51,26 @@ public class AdminService {
     private final CommentRepository commentRepository;
     private final ReportRepository reportRepository;
     private final BanRepository banRepository;
+    private final PrincipalCache principalCache;
+    private final CloseFriendService closeFriendService;
+    private final MediaStorageService mediaStorageService;
+    private final FeedService feedService;
+    private final FollowGraph followGraph;
 
     public AdminService(UserRepository userRepository, PostRepository postRepository,
             CommentRepository commentRepository, ReportRepository reportRepository,
-            BanRepository banRepository) {
+            BanRepository banRepository, PrincipalCache principalCache, CloseFriendService closeFriendService,
+            MediaStorageService mediaStorageService, FeedService feedService, FollowGraph followGraph) {
         this.userRepository = userRepository;
         this.postRepository = postRepository;
         this.commentRepository = commentRepository;
         this.reportRepository = reportRepository;
         this.banRepository = banRepository;
+        this.principalCache = principalCache;
+        this.closeFriendService = closeFriendService;
+        this.mediaStorageService = mediaStorageService;
+        this.feedService = feedService;
+        this.followGraph = followGraph;
     }
 
     /**
@@ -163,6 +180,7 @@ public class AdminService {
         user.setBanned(true);
         banRepository.save(ban);
         userRepository.save(user);
+        principalCache.invalidate(user.getId());
     }
 
     /**
@@ -175,6 +193,7 @@ public class AdminService {
             .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         user.setBanned(false);
         userRepository.save(user);
+        principalCache.invalidate(user.getId());
         banRepository.findTopByUserIdOrderByCreatedAtDesc(userId)
             .ifPresent(banRepository::delete);
     }
@@ -189,6 +208,8 @@ public class AdminService {
             .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
         reportRepository.deleteByPostId(postId);
         postRepository.delete(post);
+        mediaStorageService.releaseAll(post.getMediaUrl());
+        feedService.onPostDeleted(postId);
     }
 
     public void hidePost(Long postId) {
@@ -196,6 +217,9 @@ public class AdminService {
             .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
         post.setHidden(true);
         postRepository.save(post);
+        if (post.getCreator() != null) {
+            feedService.onPostChanged(post.getCreator().getId(), postId);
+        }
     }
 
     public void unhidePost(Long postId) {
@@ -203,6 +227,9 @@ public class AdminService {
             .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
         post.setHidden(false);
         postRepository.save(post);
+        if (post.getCreator() != null) {
+            feedService.onPostChanged(post.getCreator().getId(), postId);
+        }
     }
 
     public void hideComment(Long commentId) {
@@ -249,8 +276,21 @@ public class AdminService {
         banRepository.deleteByUserId(target.getId());
         reportRepository.deleteByReporterId(target.getId());
         reportRepository.deleteByReportedUserId(target.getId());
+        closeFriendService.removeUser(target.getId());
+        followGraph.removeUser(target.getId());
+        // The cascade below removes the follow rows without touching the other side's counters
+        userRepository.decrementFollowingCountOfFollowers(target.getId());
+        userRepository.decrementFollowerCountOfFollowed(target.getId());
         // Reports, comments, posts, etc. are set to cascade/orphan removal; repo delete will cascade.
+        List<Post> posts = target.getPosts() != null ? List.copyOf(target.getPosts()) : List.of();
         userRepository.delete(target);
+        // Media references are released after commit, once the rows holding them are gone
+        for (Post post : posts) {
+            mediaStorageService.releaseAll(post.getMediaUrl());
+            feedService.onPostDeleted(post.getId());
+        }
+        mediaStorageService.releaseAll(target.getProfilePictureUrl());
+        principalCache.invalidate(target.getId());
     }
 
     /**
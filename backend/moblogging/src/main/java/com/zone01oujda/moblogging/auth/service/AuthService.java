@@ -14,10 +14,10 @@ import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.exception.BadRequestException;
 import com.zone01oujda.moblogging.exception.ConflictException;
 import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
+import com.zone01oujda.moblogging.media.service.MediaStorageService;
 import com.zone01oujda.moblogging.security.JwtTokenProvider;
 import com.zone01oujda.moblogging.user.enums.Role;
 import com.zone01oujda.moblogging.user.repository.UserRepository;
-import com.zone01oujda.moblogging.util.FileUploadUtil;
 
 /**
  * Service class for authentication operations
@@ -31,16 +31,16 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
-    private final FileUploadUtil fileUploadUtil;
+    private final MediaStorageService mediaStorageService;
 
     public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder,
             AuthenticationManager authenticationManager, JwtTokenProvider tokenProvider,
-            FileUploadUtil fileUploadUtil) {
+            MediaStorageService mediaStorageService) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.tokenProvider = tokenProvider;
         this.passwordEncoder = passwordEncoder;
-        this.fileUploadUtil = fileUploadUtil;
+        this.mediaStorageService = mediaStorageService;
     }
 
     /**
@@ -91,7 +91,7 @@ public class AuthService {
             user.setLastName(lastName);
             user.setRole(Role.USER);
             if (dto.profilePicture != null && !dto.profilePicture.isEmpty()) {
-                String uploadedPath = fileUploadUtil.upload(dto.profilePicture);
+                String uploadedPath = mediaStorageService.store(dto.profilePicture);
                 user.setProfilePictureUrl(uploadedPath);
             }
 
@@ -17,6 +17,7 @@ import com.zone01oujda.moblogging.comment.dto.CreateCommentDto;
 import com.zone01oujda.moblogging.comment.dto.UpdateCommentDto;
 import com.zone01oujda.moblogging.comment.service.CommentService;
 import com.zone01oujda.moblogging.util.response.ApiResponse;
+import com.zone01oujda.moblogging.util.response.CursorPage;
 
 import jakarta.validation.Valid;
 
@@ -56,6 +57,17 @@ public class CommentController {
         );
     }
 
+    @GetMapping(value = "/post/{postId}", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<CommentDto>>> getByPostCursor(
+            @PathVariable("postId") Long postId,
+            @RequestParam("cursor") String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(
+            new ApiResponse<>(true, "Comments retrieved successfully",
+                commentService.getCommentsByPost(postId, cursor, size))
+        );
+    }
+
     @PutMapping("/{commentId}")
     public ResponseEntity<ApiResponse<CommentDto>> updateComment(
             @PathVariable("commentId") Long commentId,
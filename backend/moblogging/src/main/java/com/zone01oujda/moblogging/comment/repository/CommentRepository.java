@@ -1,5 +1,8 @@
 package com.zone01oujda.moblogging.comment.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,6 +14,32 @@ import com.zone01oujda.moblogging.entity.Comment;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     Page<Comment> findByPostIdAndHiddenFalse(Long postId, Pageable pageable);
     Page<Comment> findByPostId(Long postId, Pageable pageable);
+
+    @Query("""
+        SELECT c FROM Comment c
+        WHERE c.post.id = :postId
+          AND (:includeHidden = true OR c.hidden = false)
+        ORDER BY c.createdAt ASC, c.id ASC
+        """)
+    List<Comment> findFirstByPost(
+            @Param("postId") Long postId,
+            @Param("includeHidden") boolean includeHidden,
+            Pageable pageable);
+
+    @Query("""
+        SELECT c FROM Comment c
+        WHERE c.post.id = :postId
+          AND (:includeHidden = true OR c.hidden = false)
+          AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id))
+        ORDER BY c.createdAt ASC, c.id ASC
+        """)
+    List<Comment> findByPostAfter(
+            @Param("postId") Long postId,
+            @Param("includeHidden") boolean includeHidden,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+
     @Query("""
         SELECT c FROM Comment c
         WHERE (:hidden IS NULL OR c.hidden = :hidden)
@@ -2,6 +2,7 @@ package com.zone01oujda.moblogging.comment.service;
 
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -20,9 +21,12 @@ import com.zone01oujda.moblogging.exception.BadRequestException;
 import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
 import com.zone01oujda.moblogging.post.repository.PostRepository;
 import com.zone01oujda.moblogging.user.repository.UserRepository;
+import com.zone01oujda.moblogging.user.service.CloseFriendService;
 import com.zone01oujda.moblogging.notification.enums.NotificationType;
 import com.zone01oujda.moblogging.notification.service.NotificationService;
+import com.zone01oujda.moblogging.util.Cursor;
 import com.zone01oujda.moblogging.util.SecurityUtil;
+import com.zone01oujda.moblogging.util.response.CursorPage;
 import com.zone01oujda.moblogging.report.repository.ReportRepository;
 
 /**
@@ -36,14 +40,20 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final NotificationService notificationService;
     private final ReportRepository reportRepository;
+    private final CloseFriendService closeFriendService;
+    private final int maxCursorPageSize;
 
     public CommentService(UserRepository userRepository, PostRepository postRepository,
-            CommentRepository commentRepository, NotificationService notificationService, ReportRepository reportRepository) {
+            CommentRepository commentRepository, NotificationService notificationService, ReportRepository reportRepository,
+            CloseFriendService closeFriendService,
+            @Value("${comments.cursor.max-page-size:50}") int maxCursorPageSize) {
         this.userRepository = userRepository;
         this.postRepository = postRepository;
         this.commentRepository = commentRepository;
         this.notificationService = notificationService;
         this.reportRepository = reportRepository;
+        this.closeFriendService = closeFriendService;
+        this.maxCursorPageSize = Math.max(1, maxCursorPageSize);
     }
 
     /**
@@ -77,6 +87,7 @@ public class CommentService {
         if (Boolean.TRUE.equals(post.getHidden()) && !SecurityUtil.hasRole("ADMIN")) {
             throw new ResourceNotFoundException("Post not found");
         }
+        ensurePostAudience(post);
 
         // Create and save comment
         String content = trimToNull(dto.content);
@@ -91,10 +102,12 @@ public class CommentService {
 
         User postOwner = post.getCreator();
         if (postOwner != null && !postOwner.getId().equals(user.getId())) {
-            notificationService.createNotification(
+            notificationService.createCoalescedNotification(
                 postOwner,
                 NotificationType.COMMENT,
-                user.getUsername() + " commented on your post"
+                "post:" + post.getId(),
+                user,
+                "commented on your post"
             );
         }
 
@@ -129,6 +142,30 @@ public class CommentService {
                 .map(this::convertToDto);
     }
 
+    /**
+     * Get comments of a post using keyset pagination, oldest first
+     * @param postId the post ID
+     * @param cursor opaque cursor from the previous slice, or blank for the first one
+     * @param size maximum number of comments to return, clamped to the configured maximum
+     * @return slice of comments with the cursor for the next one
+     */
+    public CursorPage<CommentDto> getCommentsByPost(Long postId, String cursor, int size) {
+        size = Math.min(Math.max(1, size), maxCursorPageSize);
+        Post post = postRepository.findById(postId)
+                .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
+
+        ensurePostCommentsVisible(post);
+
+        Cursor position = Cursor.decode(cursor);
+        boolean includeHidden = SecurityUtil.hasRole("ADMIN");
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Comment> rows = position == null
+                ? commentRepository.findFirstByPost(postId, includeHidden, limit)
+                : commentRepository.findByPostAfter(postId, includeHidden,
+                        position.getCreatedAt(), position.getId(), limit);
+        return CursorPage.of(rows, size, Comment::getCreatedAt, Comment::getId, this::convertToDto);
+    }
+
     public CommentDto updateComment(Long commentId, String content) {
         String username = SecurityUtil.getCurrentUsername();
         if (username == null) {
@@ -209,6 +246,7 @@ public class CommentService {
     }
 
     private void ensurePostCommentsVisible(Post post) {
+        ensurePostAudience(post);
         if (!Boolean.TRUE.equals(post.getHidden())) {
             return;
         }
@@ -223,4 +261,17 @@ public class CommentService {
             throw new ResourceNotFoundException("Post not found");
         }
     }
+
+    /**
+     * Private and close-friend posts are reported as missing outside their audience
+     */
+    private void ensurePostAudience(Post post) {
+        if (SecurityUtil.hasRole("ADMIN") || post.getCreator() == null) {
+            return;
+        }
+        if (!closeFriendService.canView(SecurityUtil.getCurrentUserId(), post.getCreator().getId(),
+                post.getVisibility())) {
+            throw new ResourceNotFoundException("Post not found");
+        }
+    }
 }
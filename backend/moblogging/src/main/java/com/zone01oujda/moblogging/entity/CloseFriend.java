@@ -0,0 +1,66 @@
+package com.zone01oujda.moblogging.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * A member of a user's close-friends audience
+ * The owner picks their close friends; CLOSEFRIEND posts of the owner are
+ * visible to them only.
+ */
+@Entity
+@Table(name = "close_friends", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"owner_id", "friend_id"})
+})
+public class CloseFriend {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @ManyToOne
+    @JoinColumn(name = "friend_id", nullable = false)
+    private User friend;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    protected CloseFriend() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public CloseFriend(User owner, User friend) {
+        this();
+        this.owner = owner;
+        this.friend = friend;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public User getOwner() {
+        return owner;
+    }
+
+    public User getFriend() {
+        return friend;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import com.zone01oujda.moblogging.entity.CommentReact;
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -44,6 +46,15 @@ public class Comment {
     private LocalDateTime modifiedAt;
 
     private Boolean modified;
+
+    // Maintained only by ReactionCounterService; never written through the entity
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long likeCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long dislikeCount;
     
     @OneToMany(mappedBy="parent", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Comment> children;
@@ -163,4 +174,12 @@ public class Comment {
     public void setReports(List<Report> reports) {
         this.reports = reports;
     }
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public long getDislikeCount() {
+        return dislikeCount;
+    }
 }
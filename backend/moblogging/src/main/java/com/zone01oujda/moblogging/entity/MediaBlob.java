@@ -0,0 +1,73 @@
+package com.zone01oujda.moblogging.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A stored media file, addressed by the SHA-256 digest of its content
+ * Rows are written through MediaBlobRepository's atomic acquire/release
+ * queries so the reference count is never updated through the entity.
+ */
+@Entity
+@Table(name = "media_blobs")
+public class MediaBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64, updatable = false)
+    private String digest;
+
+    @Column(nullable = false, unique = true, updatable = false)
+    private String path;
+
+    @Column(nullable = false, updatable = false)
+    private String contentType;
+
+    @Column(nullable = false, updatable = false)
+    private long size;
+
+    @Column(nullable = false, updatable = false)
+    private long refCount;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    protected MediaBlob() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
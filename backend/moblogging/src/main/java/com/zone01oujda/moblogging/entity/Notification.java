@@ -1,22 +1,29 @@
 package com.zone01oujda.moblogging.entity;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import com.zone01oujda.moblogging.notification.enums.NotificationType;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 
 @Entity
-@Table(name="notifications")
+@Table(name="notifications", indexes = {
+    @Index(name = "idx_notifications_receiver_target", columnList = "user_id, type, target")
+})
 public class Notification {
     @Id
     @GeneratedValue(strategy=GenerationType.IDENTITY)
@@ -35,6 +42,33 @@ public class Notification {
 
     private LocalDateTime createdAt;
 
+    /**
+     * Time of the latest action merged into this notification, null until
+     * the first merge; createdAt never moves so keyset pages stay stable
+     */
+    private LocalDateTime updatedAt;
+
+    /**
+     * What the notification is about, e.g. "post:42"; same-type notifications
+     * about the same target are coalesced into one row
+     */
+    @Column(length = 64)
+    private String target;
+
+    /**
+     * Number of actors merged into this notification, null for legacy rows
+     */
+    private Integer actorCount;
+
+    /**
+     * IDs of the distinct actors merged into this notification, comma separated;
+     * at most MAX_TRACKED_ACTORS are kept, null for legacy rows
+     */
+    @Column(length = 1024)
+    private String actorIds;
+
+    private static final int MAX_TRACKED_ACTORS = 50;
+
     protected  Notification() {
         createdAt = LocalDateTime.now();
         state = false;
@@ -47,6 +81,13 @@ public class Notification {
         this.content = content;
     }
 
+    public Notification(NotificationType type, String content, User receiver, String target, Long actorId) {
+        this(type, content, receiver);
+        this.target = target;
+        this.actorCount = 1;
+        this.actorIds = String.valueOf(actorId);
+    }
+
     public Long getId() {
         return id;
     }
@@ -86,4 +127,51 @@ public class Notification {
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public int getActorCount() {
+        return actorCount != null ? actorCount : 1;
+    }
+
+    public void setActorCount(int actorCount) {
+        this.actorCount = actorCount;
+    }
+
+    /**
+     * Merge an actor into this notification, counting each actor once
+     * Once MAX_TRACKED_ACTORS are remembered, further actors are counted
+     * without being remembered.
+     * @param actorId the acting user's ID
+     * @return true if the actor was not counted before
+     */
+    public boolean addActor(Long actorId) {
+        String id = String.valueOf(actorId);
+        List<String> known = actorIds == null || actorIds.isEmpty()
+            ? new ArrayList<>()
+            : new ArrayList<>(Arrays.asList(actorIds.split(",")));
+        if (known.contains(id)) {
+            return false;
+        }
+        if (known.size() < MAX_TRACKED_ACTORS) {
+            known.add(id);
+            actorIds = String.join(",", known);
+        }
+        actorCount = getActorCount() + 1;
+        return true;
+    }
 }
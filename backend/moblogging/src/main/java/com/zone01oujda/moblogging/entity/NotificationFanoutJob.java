@@ -0,0 +1,107 @@
+package com.zone01oujda.moblogging.entity;
+
+import java.time.LocalDateTime;
+
+import com.zone01oujda.moblogging.notification.enums.NotificationType;
+import com.zone01oujda.moblogging.post.enums.PostVisibility;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A notification fan-out to the followers of a user that has not finished yet
+ * Written before the fan-out starts; afterId records the last follower ID
+ * already notified, advanced in the same transaction as each batch, so a job
+ * interrupted by a shutdown resumes where it stopped. The row is deleted once
+ * every follower has been notified.
+ */
+@Entity
+@Table(name = "notification_fanout_jobs")
+public class NotificationFanoutJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private NotificationType type;
+
+    @Column(nullable = false, updatable = false)
+    private String message;
+
+    /**
+     * Visibility of the post the fan-out is about, limiting it to the post's
+     * audience; null to notify every follower
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private PostVisibility audience;
+
+    @Column(nullable = false)
+    private long afterId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Last time a node claimed the job or finished a batch of it; a job whose
+     * heartbeat is stale is taken over by another run
+     */
+    @Column(nullable = false)
+    private LocalDateTime heartbeatAt;
+
+    protected NotificationFanoutJob() {
+    }
+
+    public NotificationFanoutJob(Long userId, NotificationType type, String message, PostVisibility audience) {
+        this.userId = userId;
+        this.type = type;
+        this.message = message;
+        this.audience = audience;
+        this.afterId = 0;
+        this.createdAt = LocalDateTime.now();
+        this.heartbeatAt = this.createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public NotificationType getType() {
+        return type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public PostVisibility getAudience() {
+        return audience;
+    }
+
+    public long getAfterId() {
+        return afterId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+}
@@ -0,0 +1,60 @@
+package com.zone01oujda.moblogging.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A notification waiting to be pushed over WebSocket
+ * Written in the same transaction as the notification itself and drained by
+ * NotificationOutboxRelay; the notification ID is deliberately not a foreign
+ * key so deleting a notification never blocks on its pending push.
+ */
+@Entity
+@Table(name = "notification_outbox")
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long notificationId;
+
+    @Column(nullable = false, updatable = false)
+    private String receiverUsername;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    protected NotificationOutbox() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public NotificationOutbox(Long notificationId, String receiverUsername) {
+        this();
+        this.notificationId = notificationId;
+        this.receiverUsername = receiverUsername;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getNotificationId() {
+        return notificationId;
+    }
+
+    public String getReceiverUsername() {
+        return receiverUsername;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
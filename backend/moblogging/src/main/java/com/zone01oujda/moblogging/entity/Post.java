@@ -5,6 +5,8 @@ import java.util.List;
 
 import com.zone01oujda.moblogging.post.enums.PostVisibility;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -44,6 +46,15 @@ public class Post {
 
     private Boolean hidden;
 
+    // Maintained only by ReactionCounterService; never written through the entity
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long likeCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long dislikeCount;
+
     @NotNull(message="the user is null")
     @ManyToOne(fetch=FetchType.LAZY , optional=false)
     @JoinColumn(name = "user_id", nullable=false)
@@ -161,4 +172,12 @@ public class Post {
     public void setReports(List<Report> reports) {
         this.reports = reports;
     }
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public long getDislikeCount() {
+        return dislikeCount;
+    }
 }
@@ -90,12 +90,22 @@ public class User {
     @OneToMany( mappedBy = "creator", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Comment> comments;
 
-    @OneToMany(mappedBy = "follower", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(mappedBy = "following", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Follow> followers;
 
-    @OneToMany(mappedBy = "following", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(mappedBy = "follower", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Follow> following;
 
+    // Written only by the atomic UPDATEs of FollowService and by FollowCountReconciler,
+    // never by save(), which would write back a stale in-memory value
+    @Column(nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private int followerCount;
+
+    @Column(nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private int followingCount;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<React> reacts;
 
@@ -328,11 +338,11 @@ public class User {
     }
 
     public int getFollowerCount() {
-        return followers != null ? followers.size() : 0;
+        return followerCount;
     }
 
     public int getFollowingCount() {
-        return following != null ? following.size() : 0;
+        return followingCount;
     }
 
     public boolean isActive() {
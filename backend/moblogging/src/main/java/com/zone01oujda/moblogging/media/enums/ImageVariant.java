@@ -0,0 +1,27 @@
+package com.zone01oujda.moblogging.media.enums;
+
+/**
+ * Resized renditions generated for uploaded images, smallest first
+ */
+public enum ImageVariant {
+    THUMB(160),
+    SMALL(480),
+    MEDIUM(1080);
+
+    private final int maxWidth;
+
+    ImageVariant(int maxWidth) {
+        this.maxWidth = maxWidth;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * @return the file name suffix of this variant, e.g. "thumb"
+     */
+    public String suffix() {
+        return name().toLowerCase();
+    }
+}
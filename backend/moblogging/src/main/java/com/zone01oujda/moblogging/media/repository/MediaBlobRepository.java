@@ -0,0 +1,46 @@
+package com.zone01oujda.moblogging.media.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zone01oujda.moblogging.entity.MediaBlob;
+
+/**
+ * Reference-counting writes commit on their own (REQUIRES_NEW) so they can run
+ * under MediaStorageService's per-digest locks and from after-commit callbacks.
+ */
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, Long> {
+
+    Optional<MediaBlob> findByPath(String path);
+
+    /**
+     * Insert a blob with one reference, or add a reference if the digest is known
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = """
+        INSERT INTO media_blobs (digest, path, content_type, size, ref_count, created_at)
+        VALUES (:digest, :path, :contentType, :size, 1, :createdAt)
+        ON CONFLICT (digest) DO UPDATE SET ref_count = media_blobs.ref_count + 1
+        """, nativeQuery = true)
+    int acquire(@Param("digest") String digest, @Param("path") String path,
+            @Param("contentType") String contentType, @Param("size") long size,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE MediaBlob b SET b.refCount = b.refCount - 1 WHERE b.path = :path AND b.refCount > 0")
+    int decrementByPath(@Param("path") String path);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("DELETE FROM MediaBlob b WHERE b.path = :path AND b.refCount <= 0")
+    int deleteUnreferencedByPath(@Param("path") String path);
+}
@@ -0,0 +1,235 @@
+package com.zone01oujda.moblogging.media.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.zone01oujda.moblogging.exception.BadRequestException;
+import com.zone01oujda.moblogging.media.enums.ImageVariant;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Generates resized JPEG variants of uploaded images on a bounded worker pool
+ * Variants are written next to the original as {@code <name>.<variant>.jpg}.
+ * They are best effort: when the queue is full or a variant is missing,
+ * readers fall back to the next larger variant or to the original.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private final ThreadPoolExecutor executor;
+    private final long maxPixels;
+    private final float jpegQuality;
+
+    public ImageVariantService(@Value("${media.variants.threads:2}") int threads,
+            @Value("${media.variants.queue-capacity:200}") int queueCapacity,
+            @Value("${media.variants.max-pixels:40000000}") long maxPixels,
+            @Value("${media.variants.jpeg-quality:0.82}") float jpegQuality) {
+        int poolSize = Math.max(1, threads);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), task -> {
+                Thread thread = new Thread(task, "image-variants-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Queue variant generation for a stored file; non-images are ignored
+     * @param original the stored original
+     * @param contentType the detected MIME type of the original
+     */
+    public void generateAsync(Path original, String contentType) {
+        if (original == null || contentType == null || !contentType.startsWith("image/")) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(original));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Image variant queue full, skipping {}", original.getFileName());
+        }
+    }
+
+    /**
+     * Pick the file to serve for a requested variant
+     * @param original the stored original
+     * @param requested a variant name (thumb, small, medium) or a width in pixels; null for the original
+     * @return the smallest generated variant at least as large as requested, or the original
+     * @throws BadRequestException if the requested variant is not recognised
+     */
+    public Path select(Path original, String requested) {
+        if (requested == null || requested.isBlank()) {
+            return original;
+        }
+        int width = parseWidth(requested);
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (variant.getMaxWidth() >= width) {
+                Path candidate = variantPath(original, variant);
+                if (Files.exists(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return original;
+    }
+
+    /**
+     * Delete the generated variants of an original
+     * @param original the stored original
+     */
+    public void deleteVariants(Path original) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            try {
+                Files.deleteIfExists(variantPath(original, variant));
+            } catch (IOException e) {
+                logger.warn("Failed to delete image variant of {}: {}", original.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(Path original) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    logger.warn("Skipping variants for {}: {}x{} exceeds the pixel limit",
+                        original.getFileName(), width, height);
+                    return;
+                }
+
+                // Variants at least as wide as the original would only upscale it
+                List<ImageVariant> missing = new ArrayList<>();
+                for (ImageVariant variant : ImageVariant.values()) {
+                    if (variant.getMaxWidth() < width && !Files.exists(variantPath(original, variant))) {
+                        missing.add(variant);
+                    }
+                }
+                if (missing.isEmpty()) {
+                    return;
+                }
+
+                // Subsample while decoding so huge originals are never fully materialised
+                int largest = missing.get(missing.size() - 1).getMaxWidth();
+                int subsampling = Math.max(1, width / (largest * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage source = reader.read(0, param);
+
+                // Largest first, each variant scaled from the previous one
+                for (int i = missing.size() - 1; i >= 0; i--) {
+                    ImageVariant variant = missing.get(i);
+                    BufferedImage scaled = scale(source, variant.getMaxWidth());
+                    writeJpeg(scaled, variantPath(original, variant));
+                    source = scaled;
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Image variant generation failed for {}: {}", original.getFileName(), e.getMessage());
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int maxWidth) {
+        int width = Math.min(maxWidth, source.getWidth());
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            // JPEG has no alpha channel: flatten transparency onto white
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path variantPath(Path original, ImageVariant variant) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(base + "." + variant.suffix() + ".jpg");
+    }
+
+    private static int parseWidth(String requested) {
+        String value = requested.trim();
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (variant.suffix().equalsIgnoreCase(value)) {
+                return variant.getMaxWidth();
+            }
+        }
+        try {
+            int width = Integer.parseInt(value);
+            if (width > 0) {
+                return width;
+            }
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new BadRequestException("Unknown media variant: " + requested);
+    }
+}
@@ -0,0 +1,164 @@
+package com.zone01oujda.moblogging.media.service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.zone01oujda.moblogging.media.repository.MediaBlobRepository;
+import com.zone01oujda.moblogging.util.FileUploadUtil;
+import com.zone01oujda.moblogging.util.FileUploadUtil.StagedFile;
+
+/**
+ * Content-addressed media storage
+ * Each distinct file is stored once under its SHA-256 digest and reference
+ * counted; posts and profiles that upload the same bytes share one blob, and
+ * the file is removed only when its last reference is released. Images get
+ * resized variants generated in the background.
+ */
+@Service
+public class MediaStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaStorageService.class);
+
+    private final MediaBlobRepository mediaBlobRepository;
+    private final FileUploadUtil fileUploadUtil;
+    private final ImageVariantService imageVariantService;
+    private final String uploadDir;
+    private final Object[] locks;
+
+    public MediaStorageService(MediaBlobRepository mediaBlobRepository, FileUploadUtil fileUploadUtil,
+            ImageVariantService imageVariantService,
+            @Value("${files.uploadDirectory}") String uploadDir,
+            @Value("${files.lock-stripes:64}") int lockStripes) {
+        this.mediaBlobRepository = mediaBlobRepository;
+        this.fileUploadUtil = fileUploadUtil;
+        this.imageVariantService = imageVariantService;
+        this.uploadDir = uploadDir;
+        this.locks = new Object[Math.max(1, lockStripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Store an upload, or add a reference to the identical blob already stored
+     * If called inside a transaction that rolls back, the reference is released again.
+     * @param file the uploaded file
+     * @return the public path of the stored file
+     */
+    public String store(MultipartFile file) {
+        StagedFile staged = fileUploadUtil.stage(file);
+        String path;
+        synchronized (lockFor(staged.getDigest())) {
+            path = fileUploadUtil.publish(staged);
+            mediaBlobRepository.acquire(staged.getDigest(), path, staged.getContentType(), staged.getSize(),
+                LocalDateTime.now());
+        }
+        imageVariantService.generateAsync(resolve(path), staged.getContentType());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(path);
+                    }
+                }
+            });
+        }
+        return path;
+    }
+
+    /**
+     * Release every reference in a comma-separated list of stored paths
+     * Inside a transaction the release is deferred until after commit.
+     * @param storedPaths comma-separated public paths, may be null or blank
+     */
+    public void releaseAll(String storedPaths) {
+        if (storedPaths == null || storedPaths.isBlank()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseNow(storedPaths);
+                }
+            });
+        } else {
+            releaseNow(storedPaths);
+        }
+    }
+
+    private void releaseNow(String storedPaths) {
+        for (String stored : storedPaths.split(",")) {
+            try {
+                release(stored.trim());
+            } catch (RuntimeException e) {
+                // Best-effort cleanup; continue releasing remaining files
+                logger.warn("Failed to release media {}: {}", stored, e.getMessage());
+            }
+        }
+    }
+
+    private void release(String storedPath) {
+        if (storedPath.isEmpty()) {
+            return;
+        }
+        Path file = resolve(storedPath);
+        String digest = file != null ? digestOf(file) : storedPath;
+        synchronized (lockFor(digest)) {
+            if (mediaBlobRepository.decrementByPath(storedPath) == 0) {
+                // Files uploaded before content addressing have no blob row and are not shared
+                if (file != null && mediaBlobRepository.findByPath(storedPath).isEmpty()) {
+                    deleteWithVariants(file);
+                }
+                return;
+            }
+            if (mediaBlobRepository.deleteUnreferencedByPath(storedPath) > 0 && file != null) {
+                deleteWithVariants(file);
+            }
+        }
+    }
+
+    private void deleteWithVariants(Path file) {
+        imageVariantService.deleteVariants(file);
+        fileUploadUtil.delete(file.toString());
+    }
+
+    private Path resolve(String storedPath) {
+        String relative = storedPath.startsWith("/") ? storedPath.substring(1) : storedPath;
+        String normalizedBase = uploadDir.endsWith("/") ? uploadDir : uploadDir + "/";
+
+        Path filePath;
+        if (relative.startsWith(normalizedBase)) {
+            filePath = Paths.get(relative);
+        } else {
+            filePath = Paths.get(uploadDir, relative);
+        }
+
+        Path normalizedBasePath = Paths.get(uploadDir).normalize();
+        Path normalizedFile = filePath.normalize();
+        if (!normalizedFile.startsWith(normalizedBasePath)) {
+            return null;
+        }
+        return normalizedFile;
+    }
+
+    private static String digestOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private Object lockFor(String digest) {
+        return locks[(digest.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+}
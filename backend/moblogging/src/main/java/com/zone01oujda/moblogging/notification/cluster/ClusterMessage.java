@@ -0,0 +1,95 @@
+package com.zone01oujda.moblogging.notification.cluster;
+
+/**
+ * A message exchanged between nodes through a {@link ClusterTransport}
+ * Payloads are the DTOs sent to STOMP clients; transports that leave the JVM
+ * are responsible for serialising them.
+ */
+public final class ClusterMessage {
+
+    public enum Kind {
+        /** Deliver a payload to one user's sessions */
+        USER,
+        /** Deliver a payload to every connected session */
+        BROADCAST,
+        /** A user got their first session on, or lost their last session from, the origin node */
+        PRESENCE,
+        /** Ask every other node to announce its connected users */
+        SYNC,
+        /** The origin node is shutting down */
+        NODE_DOWN,
+        /** A follow was added or removed on the origin node; the payload is {followerId, followingId} */
+        FOLLOW
+    }
+
+    private final Kind kind;
+    private final String origin;
+    private final String username;
+    private final String destination;
+    private final Object payload;
+    private final boolean online;
+
+    private ClusterMessage(Kind kind, String origin, String username, String destination, Object payload,
+            boolean online) {
+        this.kind = kind;
+        this.origin = origin;
+        this.username = username;
+        this.destination = destination;
+        this.payload = payload;
+        this.online = online;
+    }
+
+    public static ClusterMessage toUser(String origin, String username, String destination, Object payload) {
+        return new ClusterMessage(Kind.USER, origin, username, destination, payload, false);
+    }
+
+    public static ClusterMessage broadcast(String origin, String destination, Object payload) {
+        return new ClusterMessage(Kind.BROADCAST, origin, null, destination, payload, false);
+    }
+
+    public static ClusterMessage presence(String origin, String username, boolean online) {
+        return new ClusterMessage(Kind.PRESENCE, origin, username, null, null, online);
+    }
+
+    public static ClusterMessage sync(String origin) {
+        return new ClusterMessage(Kind.SYNC, origin, null, null, null, false);
+    }
+
+    public static ClusterMessage nodeDown(String origin) {
+        return new ClusterMessage(Kind.NODE_DOWN, origin, null, null, null, false);
+    }
+
+    public static ClusterMessage follow(String origin, long followerId, long followingId, boolean added) {
+        return new ClusterMessage(Kind.FOLLOW, origin, null, null, new long[] { followerId, followingId }, added);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the ID of the node that published the message
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return for PRESENCE whether the user came online, for FOLLOW whether the follow was added
+     */
+    public boolean isOnline() {
+        return online;
+    }
+}
@@ -0,0 +1,153 @@
+package com.zone01oujda.moblogging.notification.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import com.zone01oujda.moblogging.notification.websocket.CoalescibleFrame;
+import com.zone01oujda.moblogging.notification.websocket.OutboundFlowControl;
+import com.zone01oujda.moblogging.notification.websocket.PresenceTracker;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Routes STOMP messages to users wherever in the cluster they are connected
+ * Each node delivers to its own sessions through the local broker and
+ * forwards to the nodes where the user is known to be connected. Nodes
+ * announce presence transitions over the transport, so every node knows
+ * which users are online elsewhere without asking on each push.
+ */
+@Service
+public class ClusterMessageRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterMessageRouter.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceTracker presenceTracker;
+    private final ClusterTransport transport;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // username -> IDs of the other nodes with a session of that user
+    private final Map<String, Set<String>> remotePresence = new ConcurrentHashMap<>();
+
+    public ClusterMessageRouter(SimpMessagingTemplate messagingTemplate, PresenceTracker presenceTracker,
+            ClusterTransport transport) {
+        this.messagingTemplate = messagingTemplate;
+        this.presenceTracker = presenceTracker;
+        this.transport = transport;
+    }
+
+    @PostConstruct
+    public void start() {
+        transport.subscribe(this::receive);
+        presenceTracker.addListener((username, online) ->
+            transport.publish(ClusterMessage.presence(nodeId, username, online)));
+        transport.publish(ClusterMessage.sync(nodeId));
+    }
+
+    @PreDestroy
+    public void stop() {
+        transport.publish(ClusterMessage.nodeDown(nodeId));
+    }
+
+    /**
+     * Send a payload to a user's sessions on every node
+     * @param username the recipient username
+     * @param destination the user destination, e.g. "/queue/notifications"
+     * @param payload the payload
+     */
+    public void sendToUser(String username, String destination, Object payload) {
+        if (presenceTracker.isOnline(username)) {
+            deliver(username, destination, payload);
+        }
+        if (remotePresence.containsKey(username)) {
+            transport.publish(ClusterMessage.toUser(nodeId, username, destination, payload));
+        }
+    }
+
+    /**
+     * Send a payload to every connected session of the cluster
+     * @param destination the topic destination
+     * @param payload the payload
+     */
+    public void broadcast(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+        transport.publish(ClusterMessage.broadcast(nodeId, destination, payload));
+    }
+
+    /**
+     * @param username the username
+     * @return true if the user has a session on any node
+     */
+    public boolean isOnline(String username) {
+        return presenceTracker.isOnline(username) || remotePresence.containsKey(username);
+    }
+
+    /**
+     * @return the ID of this node
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void receive(ClusterMessage message) {
+        String origin = message.getOrigin();
+        if (nodeId.equals(origin)) {
+            return;
+        }
+        switch (message.getKind()) {
+            case USER -> {
+                if (presenceTracker.isOnline(message.getUsername())) {
+                    deliver(message.getUsername(), message.getDestination(), message.getPayload());
+                }
+            }
+            case BROADCAST -> messagingTemplate.convertAndSend(message.getDestination(), message.getPayload());
+            case PRESENCE -> updatePresence(message.getUsername(), origin, message.isOnline());
+            case SYNC -> {
+                for (String username : presenceTracker.getOnlineUsernames()) {
+                    transport.publish(ClusterMessage.presence(nodeId, username, true));
+                }
+            }
+            case NODE_DOWN -> {
+                for (String username : remotePresence.keySet()) {
+                    updatePresence(username, origin, false);
+                }
+                logger.info("Cluster node {} left", origin);
+            }
+            case FOLLOW -> {
+                // Applied by FollowGraph, which subscribes on its own
+            }
+        }
+    }
+
+    private void deliver(String username, String destination, Object payload) {
+        if (payload instanceof CoalescibleFrame frame) {
+            messagingTemplate.convertAndSendToUser(username, destination, payload,
+                Map.of(OutboundFlowControl.COALESCE_KEY_HEADER, frame.coalesceKey()));
+        } else {
+            messagingTemplate.convertAndSendToUser(username, destination, payload);
+        }
+    }
+
+    private void updatePresence(String username, String node, boolean online) {
+        if (online) {
+            remotePresence.compute(username, (name, nodes) -> {
+                Set<String> present = nodes != null ? nodes : ConcurrentHashMap.newKeySet();
+                present.add(node);
+                return present;
+            });
+        } else {
+            remotePresence.computeIfPresent(username, (name, nodes) -> {
+                nodes.remove(node);
+                return nodes.isEmpty() ? null : nodes;
+            });
+        }
+    }
+}
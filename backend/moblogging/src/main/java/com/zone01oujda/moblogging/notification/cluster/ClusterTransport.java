@@ -0,0 +1,24 @@
+package com.zone01oujda.moblogging.notification.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries messages between the nodes of a cluster
+ * Every published message is delivered to every subscriber, the publishing
+ * node included; receivers ignore their own messages by origin. Delivery is
+ * best effort: notifications are persisted, so a lost push only delays them.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Send a message to every node
+     * @param message the message
+     */
+    void publish(ClusterMessage message);
+
+    /**
+     * Register a receiver of this node; called at startup
+     * @param listener invoked for every message published on the cluster
+     */
+    void subscribe(Consumer<ClusterMessage> listener);
+}
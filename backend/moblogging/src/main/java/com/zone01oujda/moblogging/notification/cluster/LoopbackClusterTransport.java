@@ -0,0 +1,61 @@
+package com.zone01oujda.moblogging.notification.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-process transport connecting every application context of this JVM
+ * that uses the same channel name
+ * The default transport: a single node behaves exactly as without clustering,
+ * and tests can boot several contexts side by side. Messages are delivered
+ * synchronously on the publishing thread.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.cluster.transport", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackClusterTransport implements ClusterTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackClusterTransport.class);
+
+    private static final Map<String, List<Consumer<ClusterMessage>>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final List<Consumer<ClusterMessage>> subscribers;
+    private final List<Consumer<ClusterMessage>> own = new CopyOnWriteArrayList<>();
+
+    public LoopbackClusterTransport(@Value("${notifications.cluster.channel:moblogging}") String channel) {
+        this.subscribers = CHANNELS.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>());
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (Consumer<ClusterMessage> subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (RuntimeException e) {
+                logger.warn("Cluster subscriber failed on {} message: {}", message.getKind(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> listener) {
+        own.add(listener);
+        subscribers.add(listener);
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.removeAll(own);
+        own.clear();
+    }
+}
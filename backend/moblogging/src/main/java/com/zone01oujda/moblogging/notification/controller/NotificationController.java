@@ -13,7 +13,10 @@ import org.springframework.web.bind.annotation.RestController;
 import com.zone01oujda.moblogging.notification.dto.NotificationDto;
 import com.zone01oujda.moblogging.notification.service.NotificationService;
 import com.zone01oujda.moblogging.notification.websocket.NotificationEventPublisher;
+import com.zone01oujda.moblogging.notification.websocket.OutboundFlowControl;
+import com.zone01oujda.moblogging.util.SecurityUtil;
 import com.zone01oujda.moblogging.util.response.ApiResponse;
+import com.zone01oujda.moblogging.util.response.CursorPage;
 
 /**
  * REST controller for notification operations
@@ -25,10 +28,13 @@ public class NotificationController {
 
     private final NotificationEventPublisher eventPublisher;
     private final NotificationService notificationService;
+    private final OutboundFlowControl outboundFlowControl;
 
-    public NotificationController(NotificationEventPublisher eventPublisher, NotificationService notificationService) {
+    public NotificationController(NotificationEventPublisher eventPublisher, NotificationService notificationService,
+            OutboundFlowControl outboundFlowControl) {
         this.eventPublisher = eventPublisher;
         this.notificationService = notificationService;
+        this.outboundFlowControl = outboundFlowControl;
     }
 
     /**
@@ -47,6 +53,22 @@ public class NotificationController {
         );
     }
 
+    /**
+     * Get notifications for current user using keyset pagination
+     * @param cursor opaque cursor from the previous slice, empty for the first one
+     * @param size slice size (default 10)
+     * @return slice of notifications with the next cursor
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<NotificationDto>>> getNotificationsByCursor(
+            @RequestParam("cursor") String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        CursorPage<NotificationDto> notifications = notificationService.getNotifications(cursor, size);
+        return ResponseEntity.ok(
+            new ApiResponse<>(true, "Notifications retrieved successfully", notifications)
+        );
+    }
+
     /**
      * Get unread notifications for current user
      * @return list of unread notifications
@@ -58,6 +80,18 @@ public class NotificationController {
         );
     }
 
+    /**
+     * Get the number of unread notifications for current user
+     * Connected clients also receive UNREAD_COUNT frames on their notification queue.
+     * @return unread count
+     */
+    @GetMapping("/unread/count")
+    public ResponseEntity<ApiResponse<Long>> getUnreadCount() {
+        return ResponseEntity.ok(
+            new ApiResponse<>(true, "Unread count retrieved successfully", notificationService.getUnreadCount())
+        );
+    }
+
     /**
      * Mark a notification as read
      * @param notificationId the notification ID
@@ -99,13 +133,51 @@ public class NotificationController {
 
     /**
      * Mark all notifications as read for current user
-     * @return success response
+     * @return number of notifications updated
      */
     @PutMapping("/read-all")
-    public ResponseEntity<ApiResponse<Void>> markAllAsRead() {
-        notificationService.markAllAsRead();
+    public ResponseEntity<ApiResponse<Integer>> markAllAsRead() {
+        int updated = notificationService.markAllAsRead();
+        return ResponseEntity.ok(
+            new ApiResponse<>(true, "All notifications marked as read", updated)
+        );
+    }
+
+    /**
+     * Mark notifications up to and including an ID as read
+     * @param notificationId the highest notification ID to mark
+     * @return number of notifications updated
+     */
+    @PutMapping("/read-up-to/{notificationId}")
+    public ResponseEntity<ApiResponse<Integer>> markReadUpTo(@PathVariable("notificationId") Long notificationId) {
+        int updated = notificationService.markReadUpTo(notificationId);
+        return ResponseEntity.ok(
+            new ApiResponse<>(true, "Notifications marked as read", updated)
+        );
+    }
+
+    /**
+     * Delete all read notifications of current user
+     * @return number of notifications deleted
+     */
+    @DeleteMapping("/read")
+    public ResponseEntity<ApiResponse<Integer>> deleteAllRead() {
+        int deleted = notificationService.deleteAllRead();
+        return ResponseEntity.ok(
+            new ApiResponse<>(true, "Read notifications deleted successfully", deleted)
+        );
+    }
+
+    /**
+     * Delete notifications of current user older than a number of days
+     * @param days age in days
+     * @return number of notifications deleted
+     */
+    @DeleteMapping(params = "olderThanDays")
+    public ResponseEntity<ApiResponse<Integer>> deleteOlderThan(@RequestParam("olderThanDays") int days) {
+        int deleted = notificationService.deleteOlderThan(days);
         return ResponseEntity.ok(
-            new ApiResponse<>(true, "All notifications marked as read")
+            new ApiResponse<>(true, "Old notifications deleted successfully", deleted)
         );
     }
 
@@ -134,6 +206,12 @@ public class NotificationController {
     public ResponseEntity<ApiResponse<Object>> getSystemStats() {
         java.util.Map<String, Object> stats = new java.util.HashMap<>();
         stats.put("totalOnlineUsers", eventPublisher.getTotalOnlineUsers());
+        stats.put("droppedFrames", outboundFlowControl.getDroppedFrames());
+        stats.put("coalescedFrames", outboundFlowControl.getCoalescedFrames());
+        // Per-session counters name users, so only admins get them
+        if (SecurityUtil.hasRole("ADMIN")) {
+            stats.put("sessionFrameStats", outboundFlowControl.getSessionStats());
+        }
         stats.put("timestamp", java.time.LocalDateTime.now());
         
         return ResponseEntity.ok(
@@ -43,4 +43,9 @@ public class NotificationDto {
      * Timestamp when notification was created
      */
     public LocalDateTime createdAt;
+
+    /**
+     * Timestamp of the latest action merged into the notification, null if none
+     */
+    public LocalDateTime updatedAt;
 }
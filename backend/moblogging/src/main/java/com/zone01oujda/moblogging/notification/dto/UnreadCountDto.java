@@ -0,0 +1,37 @@
+package com.zone01oujda.moblogging.notification.dto;
+
+import com.zone01oujda.moblogging.notification.websocket.CoalescibleFrame;
+
+/**
+ * Unread-count update frame sent on the notification queue
+ * Carries a type so clients can tell it apart from notification frames.
+ */
+public class UnreadCountDto implements CoalescibleFrame {
+
+    /**
+     * Frame type of unread-count updates
+     */
+    public static final String TYPE = "UNREAD_COUNT";
+
+    /**
+     * Number of unread notifications
+     */
+    private final long unreadCount;
+
+    public UnreadCountDto(long unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+
+    public String getType() {
+        return TYPE;
+    }
+
+    public long getUnreadCount() {
+        return unreadCount;
+    }
+
+    @Override
+    public String coalesceKey() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,30 @@
+package com.zone01oujda.moblogging.notification.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zone01oujda.moblogging.entity.NotificationFanoutJob;
+
+public interface NotificationFanoutJobRepository extends JpaRepository<NotificationFanoutJob, Long> {
+
+    @Query("SELECT j FROM NotificationFanoutJob j WHERE j.heartbeatAt < :staleBefore ORDER BY j.id")
+    List<NotificationFanoutJob> findStale(@Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+
+    /**
+     * Take over a stale job; only one node gets 1 back
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE NotificationFanoutJob j SET j.heartbeatAt = :now
+        WHERE j.id = :id AND j.heartbeatAt < :staleBefore
+        """)
+    int claim(@Param("id") Long id, @Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+}
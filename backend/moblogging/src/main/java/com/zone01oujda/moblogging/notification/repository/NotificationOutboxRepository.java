@@ -0,0 +1,9 @@
+package com.zone01oujda.moblogging.notification.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.zone01oujda.moblogging.entity.NotificationOutbox;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+    boolean existsByNotificationId(Long notificationId);
+}
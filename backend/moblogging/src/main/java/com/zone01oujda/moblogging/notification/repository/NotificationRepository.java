@@ -1,17 +1,96 @@
 package com.zone01oujda.moblogging.notification.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.zone01oujda.moblogging.entity.Notification;
+import com.zone01oujda.moblogging.notification.enums.NotificationType;
+
+import jakarta.persistence.LockModeType;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     Page<Notification> findByReceiverIdOrderByCreatedAtDesc(Long receiverId, Pageable pageable);
     List<Notification> findByReceiverIdAndStateFalseOrderByCreatedAtDesc(Long receiverId);
     long countByReceiverIdAndStateFalse(Long receiverId);
     Optional<Notification> findByIdAndReceiverId(Long id, Long receiverId);
+    boolean existsByIdAndReceiverId(Long id, Long receiverId);
+
+    @Query("""
+        SELECT n FROM Notification n
+        WHERE n.receiver.id = :receiverId
+        ORDER BY n.createdAt DESC, n.id DESC
+        """)
+    List<Notification> findLatestByReceiver(@Param("receiverId") Long receiverId, Pageable pageable);
+
+    @Query("""
+        SELECT n FROM Notification n
+        WHERE n.receiver.id = :receiverId
+          AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id))
+        ORDER BY n.createdAt DESC, n.id DESC
+        """)
+    List<Notification> findByReceiverBefore(
+            @Param("receiverId") Long receiverId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+
+    /**
+     * Find the unread notification a new one about the same target can be merged into
+     * Locks the row so concurrent merges serialise on it. The window counts
+     * from the row's creation, so a steady trickle still starts a new row.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT n FROM Notification n
+        WHERE n.receiver.id = :receiverId AND n.type = :type AND n.target = :target
+          AND n.state = false AND n.createdAt >= :since
+        ORDER BY n.createdAt DESC
+        """)
+    List<Notification> findCoalescible(
+            @Param("receiverId") Long receiverId,
+            @Param("type") NotificationType type,
+            @Param("target") String target,
+            @Param("since") LocalDateTime since,
+            Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE Notification n SET n.state = :state
+        WHERE n.id = :id AND n.receiver.id = :receiverId AND n.state <> :state
+        """)
+    int updateState(@Param("id") Long id, @Param("receiverId") Long receiverId, @Param("state") boolean state);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.state = true WHERE n.receiver.id = :receiverId AND n.state = false")
+    int markAllRead(@Param("receiverId") Long receiverId);
+
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE Notification n SET n.state = true
+        WHERE n.receiver.id = :receiverId AND n.state = false AND n.id <= :maxId
+        """)
+    int markReadUpTo(@Param("receiverId") Long receiverId, @Param("maxId") Long maxId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Notification n WHERE n.receiver.id = :receiverId AND n.state = true")
+    int deleteAllRead(@Param("receiverId") Long receiverId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Notification n WHERE n.receiver.id = :receiverId AND n.createdAt < :cutoff")
+    int deleteOlderThan(@Param("receiverId") Long receiverId, @Param("cutoff") LocalDateTime cutoff);
 }
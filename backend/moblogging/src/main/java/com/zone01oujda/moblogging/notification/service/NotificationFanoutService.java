@@ -0,0 +1,268 @@
+package com.zone01oujda.moblogging.notification.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zone01oujda.moblogging.entity.NotificationFanoutJob;
+import com.zone01oujda.moblogging.notification.enums.NotificationType;
+import com.zone01oujda.moblogging.notification.repository.NotificationFanoutJobRepository;
+import com.zone01oujda.moblogging.notification.websocket.NotificationEventPublisher;
+import com.zone01oujda.moblogging.post.enums.PostVisibility;
+import com.zone01oujda.moblogging.user.repository.FollowRepository;
+import com.zone01oujda.moblogging.user.service.CloseFriendService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background fan-out of notifications to all followers of a user
+ * Followers are walked in keyset batches; each batch is written with one JDBC
+ * batch insert, together with outbox entries for the followers that have an
+ * open WebSocket session; NotificationOutboxRelay pushes those after commit.
+ * Each fan-out is persisted as a NotificationFanoutJob whose progress commits
+ * with every batch, so a restart resumes it instead of losing the rest.
+ */
+@Service
+public class NotificationFanoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationFanoutService.class);
+
+    private static final String INSERT_NOTIFICATION =
+        "INSERT INTO notifications (user_id, state, type, content, created_at) VALUES (?, false, ?, ?, ?)";
+    private static final String INSERT_OUTBOX =
+        "INSERT INTO notification_outbox (notification_id, receiver_username, created_at) VALUES (?, ?, ?)";
+    private static final String UPDATE_PROGRESS =
+        "UPDATE notification_fanout_jobs SET after_id = ?, heartbeat_at = ? WHERE id = ?";
+
+    private final FollowRepository followRepository;
+    private final NotificationFanoutJobRepository jobRepository;
+    private final CloseFriendService closeFriendService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationEventPublisher eventPublisher;
+    private final UnreadCountService unreadCounts;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+    private final Duration staleAfter;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    public NotificationFanoutService(FollowRepository followRepository, NotificationFanoutJobRepository jobRepository,
+            CloseFriendService closeFriendService, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, NotificationEventPublisher eventPublisher,
+            UnreadCountService unreadCounts,
+            @Value("${notifications.fanout.batch-size:500}") int batchSize,
+            @Value("${notifications.fanout.threads:2}") int threads,
+            @Value("${notifications.fanout.queue-capacity:1000}") int queueCapacity,
+            @Value("${notifications.fanout.stale-after-ms:600000}") long staleAfterMillis) {
+        this.followRepository = followRepository;
+        this.jobRepository = jobRepository;
+        this.closeFriendService = closeFriendService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.unreadCounts = unreadCounts;
+        this.batchSize = Math.max(1, batchSize);
+        this.staleAfter = Duration.ofMillis(Math.max(1, staleAfterMillis));
+        int poolSize = Math.max(1, threads);
+        AtomicInteger counter = new AtomicInteger();
+        // A full queue makes the caller run the job rather than dropping notifications
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), task -> {
+                Thread thread = new Thread(task, "notification-fanout-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Queue a notification for every follower of a user
+     * @param userId the followed user, who is never notified about their own action
+     * @param type the notification type
+     * @param message the notification text
+     */
+    public void notifyFollowers(Long userId, NotificationType type, String message) {
+        notifyFollowers(userId, type, message, null);
+    }
+
+    /**
+     * Queue a notification for the followers of a user that are in a post's audience
+     * The job is persisted first and started after the surrounding transaction
+     * commits; a job cut short by a shutdown is resumed by resumeStale.
+     * @param userId the followed user, who is never notified about their own action
+     * @param type the notification type
+     * @param message the notification text
+     * @param audience visibility of the post the notification is about, or null for every follower
+     */
+    public void notifyFollowers(Long userId, NotificationType type, String message, PostVisibility audience) {
+        NotificationFanoutJob job = jobRepository.save(new NotificationFanoutJob(userId, type, message, audience));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(job);
+                }
+            });
+        } else {
+            submit(job);
+        }
+    }
+
+    /**
+     * Resume fan-out jobs nobody has advanced for a while: left behind by a
+     * shutdown or a crash, on this node or another one
+     */
+    @Scheduled(fixedDelayString = "${notifications.fanout.resume-interval-ms:60000}")
+    public void resumeStale() {
+        if (stopping) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(staleAfter);
+        for (NotificationFanoutJob job : jobRepository.findStale(staleBefore, PageRequest.of(0, batchSize))) {
+            if (!running.contains(job.getId()) && jobRepository.claim(job.getId(), staleBefore, now) == 1) {
+                logger.info("Resuming notification fan-out job {} for user {} after follower {}",
+                    job.getId(), job.getUserId(), job.getAfterId());
+                submit(job);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Running and queued jobs stop after their current batch; their rows stay for resumeStale
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+            logger.warn("Notification fan-out still running at shutdown, jobs {} left to resume", running);
+        }
+    }
+
+    private void submit(NotificationFanoutJob job) {
+        if (!running.add(job.getId())) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                fanOut(job);
+            } catch (RuntimeException e) {
+                logger.error("Notification fan-out job {} for user {} failed: {}", job.getId(), job.getUserId(),
+                    e.getMessage(), e);
+            } finally {
+                running.remove(job.getId());
+            }
+        });
+    }
+
+    private void fanOut(NotificationFanoutJob job) {
+        Long userId = job.getUserId();
+        NotificationType type = job.getType();
+        long afterId = job.getAfterId();
+        int delivered = 0;
+        boolean done = false;
+        while (!stopping) {
+            List<Object[]> batch = followRepository.findFollowerBatch(userId, afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                done = true;
+                break;
+            }
+            long lastId = (Long) batch.get(batch.size() - 1)[0];
+            List<Object[]> receivers = batch.stream()
+                .filter(row -> !userId.equals(row[0]) && inAudience(job, (Long) row[0]))
+                .toList();
+            // The batch and the job's progress commit together, so a resumed job never notifies twice
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!receivers.isEmpty()) {
+                    List<Long> ids = insertBatch(receivers, type, job.getMessage(), job.getCreatedAt());
+                    enqueuePushes(receivers, ids);
+                }
+                jdbcTemplate.update(UPDATE_PROGRESS, lastId, Timestamp.valueOf(LocalDateTime.now()), job.getId());
+            });
+            for (Object[] receiver : receivers) {
+                unreadCounts.adjust((Long) receiver[0], (String) receiver[1], 1);
+            }
+            delivered += receivers.size();
+            afterId = lastId;
+            if (batch.size() < batchSize) {
+                done = true;
+                break;
+            }
+        }
+        if (done) {
+            jobRepository.deleteById(job.getId());
+            logger.debug("Fanned out {} notification to {} followers of user {}", type, delivered, userId);
+        } else {
+            logger.info("Notification fan-out job {} for user {} paused after follower {}", job.getId(), userId,
+                afterId);
+        }
+    }
+
+    private boolean inAudience(NotificationFanoutJob job, Long followerId) {
+        return job.getAudience() == null || closeFriendService.canView(followerId, job.getUserId(), job.getAudience());
+    }
+
+    private List<Long> insertBatch(List<Object[]> receivers, NotificationType type, String message,
+            LocalDateTime createdAt) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            con -> con.prepareStatement(INSERT_NOTIFICATION, new String[] { "id" }),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, (Long) receivers.get(i)[0]);
+                    ps.setString(2, type.name());
+                    ps.setString(3, message);
+                    ps.setTimestamp(4, Timestamp.valueOf(createdAt));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return receivers.size();
+                }
+            },
+            keys);
+        return keys.getKeyList().stream()
+            .map(row -> row.get("id"))
+            .map(id -> id instanceof Number number ? number.longValue() : null)
+            .toList();
+    }
+
+    private void enqueuePushes(List<Object[]> receivers, List<Long> ids) {
+        Timestamp queuedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> entries = new ArrayList<>();
+        for (int i = 0; i < receivers.size() && i < ids.size(); i++) {
+            String username = (String) receivers.get(i)[1];
+            if (ids.get(i) != null && eventPublisher.isUsernameOnline(username)) {
+                entries.add(new Object[] { ids.get(i), username, queuedAt });
+            }
+        }
+        if (!entries.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_OUTBOX, entries);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.zone01oujda.moblogging.notification.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zone01oujda.moblogging.notification.dto.NotificationDto;
+import com.zone01oujda.moblogging.notification.websocket.NotificationSocketHandler;
+
+/**
+ * Drains the notification outbox to WebSocket subscribers
+ * Rows are claimed with SKIP LOCKED so several nodes can relay concurrently,
+ * pushed, and deleted in the same transaction. Delivery is at most once: the
+ * notification row itself is already committed and a failed push only means
+ * the client picks it up on its next fetch.
+ */
+@Service
+public class NotificationOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxRelay.class);
+
+    private static final String CLAIM_BATCH = """
+        SELECT o.id, o.receiver_username, o.created_at, n.id, n.content, n.state, n.type, n.created_at,
+               n.updated_at
+        FROM notification_outbox o
+        LEFT JOIN notifications n ON n.id = o.notification_id
+        ORDER BY o.id
+        LIMIT ?
+        FOR UPDATE OF o SKIP LOCKED
+        """;
+    private static final String DELETE_ENTRY = "DELETE FROM notification_outbox WHERE id = ?";
+    private static final RowMapper<Entry> ENTRY = (rs, rowNum) -> new Entry(
+        rs.getLong(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(), notificationOf(rs));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationSocketHandler socketHandler;
+    private final int batchSize;
+    private final long lagWarnMillis;
+
+    private final LongAdder delivered = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    public NotificationOutboxRelay(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            NotificationSocketHandler socketHandler,
+            @Value("${notifications.outbox.batch-size:200}") int batchSize,
+            @Value("${notifications.outbox.lag-warn-ms:5000}") long lagWarnMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.socketHandler = socketHandler;
+        this.batchSize = Math.max(1, batchSize);
+        this.lagWarnMillis = lagWarnMillis;
+    }
+
+    /**
+     * Push pending outbox entries until the outbox is empty or claimed by other nodes
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            Integer drained;
+            do {
+                drained = transactionTemplate.execute(status -> drainBatch());
+            } while (drained != null && drained == batchSize);
+        } catch (RuntimeException e) {
+            logger.error("Notification outbox relay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return number of notifications pushed since startup
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return lag between outbox write and push of the most recent delivery, in milliseconds
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    /**
+     * @return highest delivery lag seen since startup, in milliseconds
+     */
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    private int drainBatch() {
+        List<Entry> entries = jdbcTemplate.query(CLAIM_BATCH, ENTRY, batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long lag = 0;
+        List<Object[]> drained = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            drained.add(new Object[] { entry.id() });
+            // The notification was deleted before it could be pushed
+            if (entry.notification() == null) {
+                continue;
+            }
+            try {
+                socketHandler.sendNotificationToUser(entry.username(), entry.notification());
+                delivered.increment();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to push notification {} to {}: {}", entry.notification().getId(),
+                    entry.username(), e.getMessage());
+            }
+            lag = Math.max(lag, Duration.between(entry.createdAt(), now).toMillis());
+        }
+        jdbcTemplate.batchUpdate(DELETE_ENTRY, drained);
+
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+        if (lag > lagWarnMillis) {
+            logger.warn("Notification outbox lagging: {} entries relayed, oldest {} ms", entries.size(), lag);
+        } else {
+            logger.debug("Relayed {} notification outbox entries, max lag {} ms", entries.size(), lag);
+        }
+        return entries.size();
+    }
+
+    private static NotificationDto notificationOf(ResultSet rs) throws SQLException {
+        long id = rs.getLong(4);
+        if (rs.wasNull()) {
+            return null;
+        }
+        Timestamp createdAt = rs.getTimestamp(8);
+        Timestamp updatedAt = rs.getTimestamp(9);
+        String type = rs.getString(7);
+        return new NotificationDto(id, rs.getString(5), rs.getBoolean(6), type != null ? type : "SYSTEM", null,
+            createdAt != null ? createdAt.toLocalDateTime() : null,
+            updatedAt != null ? updatedAt.toLocalDateTime() : null);
+    }
+
+    private record Entry(long id, String username, LocalDateTime createdAt, NotificationDto notification) {
+    }
+}
@@ -1,34 +1,50 @@
 package com.zone01oujda.moblogging.notification.service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.zone01oujda.moblogging.entity.Notification;
+import com.zone01oujda.moblogging.entity.NotificationOutbox;
 import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.exception.AccessDeniedException;
+import com.zone01oujda.moblogging.exception.BadRequestException;
 import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
 import com.zone01oujda.moblogging.notification.dto.NotificationDto;
 import com.zone01oujda.moblogging.notification.enums.NotificationType;
+import com.zone01oujda.moblogging.notification.repository.NotificationOutboxRepository;
 import com.zone01oujda.moblogging.notification.repository.NotificationRepository;
-import com.zone01oujda.moblogging.notification.websocket.NotificationEventPublisher;
 import com.zone01oujda.moblogging.user.repository.UserRepository;
+import com.zone01oujda.moblogging.util.Cursor;
 import com.zone01oujda.moblogging.util.SecurityUtil;
+import com.zone01oujda.moblogging.util.response.CursorPage;
 
 @Service
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final NotificationEventPublisher eventPublisher;
+    private final NotificationOutboxRepository outboxRepository;
+    private final UnreadCountService unreadCounts;
+    private final Duration coalesceWindow;
+    private final int maxCursorPageSize;
 
     public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository,
-            NotificationEventPublisher eventPublisher) {
+            NotificationOutboxRepository outboxRepository, UnreadCountService unreadCounts,
+            @Value("${notifications.coalesce.window-ms:3600000}") long coalesceWindowMillis,
+            @Value("${notifications.cursor.max-page-size:50}") int maxCursorPageSize) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
-        this.eventPublisher = eventPublisher;
+        this.outboxRepository = outboxRepository;
+        this.unreadCounts = unreadCounts;
+        this.coalesceWindow = Duration.ofMillis(Math.max(0, coalesceWindowMillis));
+        this.maxCursorPageSize = Math.max(1, maxCursorPageSize);
     }
 
     public Page<NotificationDto> getNotifications(int page, int size) {
@@ -38,6 +54,17 @@ public class NotificationService {
             .map(this::toDto);
     }
 
+    public CursorPage<NotificationDto> getNotifications(String cursor, int size) {
+        size = Math.min(Math.max(1, size), maxCursorPageSize);
+        User user = getCurrentUser();
+        Cursor position = Cursor.decode(cursor);
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Notification> rows = position == null
+            ? notificationRepository.findLatestByReceiver(user.getId(), limit)
+            : notificationRepository.findByReceiverBefore(user.getId(), position.getCreatedAt(), position.getId(), limit);
+        return CursorPage.of(rows, size, Notification::getCreatedAt, Notification::getId, this::toDto);
+    }
+
     public List<NotificationDto> getUnreadNotifications() {
         User user = getCurrentUser();
         return notificationRepository
@@ -47,36 +74,73 @@ public class NotificationService {
             .toList();
     }
 
+    /**
+     * Get the current user's unread count from the in-memory counter
+     * @return number of unread notifications
+     */
     public long getUnreadCount() {
-        User user = getCurrentUser();
-        return notificationRepository.countByReceiverIdAndStateFalse(user.getId());
+        Long userId = SecurityUtil.getCurrentUserId();
+        return unreadCounts.get(userId != null ? userId : getCurrentUser().getId());
     }
 
     public void markAsRead(Long notificationId) {
-        User user = getCurrentUser();
-        Notification notification = notificationRepository.findByIdAndReceiverId(notificationId, user.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("Notification not found"));
-        notification.setState(true);
-        notificationRepository.save(notification);
+        setState(notificationId, true);
     }
 
     public void markAsUnread(Long notificationId) {
+        setState(notificationId, false);
+    }
+
+    /**
+     * Mark every unread notification of the current user as read
+     * @return number of notifications updated
+     */
+    public int markAllAsRead() {
         User user = getCurrentUser();
-        Notification notification = notificationRepository.findByIdAndReceiverId(notificationId, user.getId())
-            .orElseThrow(() -> new ResourceNotFoundException("Notification not found"));
-        notification.setState(false);
-        notificationRepository.save(notification);
+        int updated = notificationRepository.markAllRead(user.getId());
+        unreadCounts.adjust(user.getId(), user.getUsername(), -updated);
+        return updated;
+    }
+
+    /**
+     * Mark the current user's notifications up to and including an ID as read
+     * Lets a client acknowledge exactly what it has displayed, without racing
+     * notifications that arrive meanwhile.
+     * @param maxId the highest notification ID to mark
+     * @return number of notifications updated
+     */
+    public int markReadUpTo(Long maxId) {
+        User user = getCurrentUser();
+        int updated = notificationRepository.markReadUpTo(user.getId(), maxId);
+        unreadCounts.adjust(user.getId(), user.getUsername(), -updated);
+        return updated;
+    }
+
+    /**
+     * Delete every read notification of the current user
+     * @return number of notifications deleted
+     */
+    public int deleteAllRead() {
+        User user = getCurrentUser();
+        return notificationRepository.deleteAllRead(user.getId());
     }
 
-    public void markAllAsRead() {
+    /**
+     * Delete the current user's notifications older than a number of days
+     * @param days age in days, 0 deletes everything created before now
+     * @return number of notifications deleted
+     * @throws BadRequestException if days is negative
+     */
+    public int deleteOlderThan(int days) {
+        if (days < 0) {
+            throw new BadRequestException("Days must not be negative");
+        }
         User user = getCurrentUser();
-        List<Notification> unread = notificationRepository
-            .findByReceiverIdAndStateFalseOrderByCreatedAtDesc(user.getId());
-        if (unread.isEmpty()) {
-            return;
+        int deleted = notificationRepository.deleteOlderThan(user.getId(), LocalDateTime.now().minusDays(days));
+        if (deleted > 0) {
+            unreadCounts.refresh(user.getId(), user.getUsername());
         }
-        unread.forEach(notification -> notification.setState(true));
-        notificationRepository.saveAll(unread);
+        return deleted;
     }
 
     public void deleteNotification(Long notificationId) {
@@ -84,14 +148,89 @@ public class NotificationService {
         Notification notification = notificationRepository.findByIdAndReceiverId(notificationId, user.getId())
             .orElseThrow(() -> new ResourceNotFoundException("Notification not found"));
         notificationRepository.delete(notification);
+        if (!Boolean.TRUE.equals(notification.getState())) {
+            unreadCounts.adjust(user.getId(), user.getUsername(), -1);
+        }
     }
 
+    /**
+     * Create a notification and queue its WebSocket push
+     * The push goes through the outbox, so it only happens once the caller's
+     * transaction commits and never blocks the request on the broker.
+     * @param receiver the user to notify
+     * @param type the notification type
+     * @param message the notification text
+     * @return the created notification
+     */
+    @Transactional
     public NotificationDto createNotification(User receiver, NotificationType type, String message) {
-        Notification notification = new Notification(type, message, receiver);
+        return toDto(insert(new Notification(type, message, receiver)));
+    }
+
+    /**
+     * Create a notification about an action on a target, merging it into a
+     * recent unread notification of the same type about the same target
+     * A burst of reactions then yields one row such as "alice and 341 others
+     * reacted to your post", and at most one pending push for it.
+     * @param receiver the user to notify
+     * @param type the notification type
+     * @param target what the action is about, e.g. "post:42"
+     * @param actor the acting user; repeated actions by the same user are counted once
+     * @param action the action text, e.g. "reacted to your post"
+     * @return the created or merged notification
+     */
+    @Transactional
+    public NotificationDto createCoalescedNotification(User receiver, NotificationType type, String target,
+            User actor, String action) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> recent = coalesceWindow.isZero()
+            ? List.of()
+            : notificationRepository.findCoalescible(receiver.getId(), type, target, now.minus(coalesceWindow),
+                PageRequest.of(0, 1));
+        if (recent.isEmpty()) {
+            return toDto(insert(new Notification(type, describe(actor.getUsername(), action, 1), receiver, target,
+                actor.getId())));
+        }
+
+        Notification aggregate = recent.get(0);
+        if (!aggregate.addActor(actor.getId())) {
+            // Same user acting again, e.g. switching reaction: nothing new to tell
+            return toDto(aggregate);
+        }
+        aggregate.setContent(describe(actor.getUsername(), action, aggregate.getActorCount()));
+        // createdAt stays put: it orders cursor pages and anchors the merge window
+        aggregate.setUpdatedAt(now);
+        // A push still waiting in the outbox reads the merged content when it is relayed
+        if (!outboxRepository.existsByNotificationId(aggregate.getId())) {
+            outboxRepository.save(new NotificationOutbox(aggregate.getId(), receiver.getUsername()));
+        }
+        return toDto(aggregate);
+    }
+
+    private Notification insert(Notification notification) {
         Notification saved = notificationRepository.save(notification);
-        NotificationDto dto = toDto(saved);
-        eventPublisher.publishToUser(receiver, dto);
-        return dto;
+        User receiver = saved.getReceiver();
+        outboxRepository.save(new NotificationOutbox(saved.getId(), receiver.getUsername()));
+        unreadCounts.adjust(receiver.getId(), receiver.getUsername(), 1);
+        return saved;
+    }
+
+    private static String describe(String actor, String action, int actors) {
+        if (actors <= 1) {
+            return actor + " " + action;
+        }
+        int others = actors - 1;
+        return actor + " and " + others + (others == 1 ? " other " : " others ") + action;
+    }
+
+    private void setState(Long notificationId, boolean read) {
+        User user = getCurrentUser();
+        // Conditional update: only a real state change affects the unread count
+        int updated = notificationRepository.updateState(notificationId, user.getId(), read);
+        if (updated == 0 && !notificationRepository.existsByIdAndReceiverId(notificationId, user.getId())) {
+            throw new ResourceNotFoundException("Notification not found");
+        }
+        unreadCounts.adjust(user.getId(), user.getUsername(), read ? -updated : updated);
     }
 
     private User getCurrentUser() {
@@ -110,7 +249,8 @@ public class NotificationService {
             Boolean.TRUE.equals(notification.getState()),
             notification.getType() != null ? notification.getType().name() : "SYSTEM",
             null,
-            notification.getCreatedAt()
+            notification.getCreatedAt(),
+            notification.getUpdatedAt()
         );
     }
 }
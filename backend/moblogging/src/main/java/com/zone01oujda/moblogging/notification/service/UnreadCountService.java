@@ -0,0 +1,139 @@
+package com.zone01oujda.moblogging.notification.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zone01oujda.moblogging.notification.repository.NotificationRepository;
+import com.zone01oujda.moblogging.notification.websocket.NotificationEventPublisher;
+
+/**
+ * In-memory unread notification counters, seeded lazily from the database
+ * Changes are applied after the surrounding transaction commits and the new
+ * count is pushed to the user's notification queue when they are connected,
+ * so clients can keep their badge current without polling. Entries expire
+ * after a while to bound any drift from concurrent changes.
+ */
+@Service
+public class UnreadCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCountService.class);
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationEventPublisher eventPublisher;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UnreadCountService(NotificationRepository notificationRepository,
+            NotificationEventPublisher eventPublisher,
+            @Value("${notifications.unread-cache.ttl-ms:300000}") long ttlMillis,
+            @Value("${notifications.unread-cache.max-size:50000}") int maxSize) {
+        this.notificationRepository = notificationRepository;
+        this.eventPublisher = eventPublisher;
+        this.ttlMillis = ttlMillis;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Get a user's unread count, loading it from the database on a miss
+     * @param userId the user ID
+     * @return number of unread notifications
+     */
+    public long get(Long userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.expiresAt >= System.currentTimeMillis()) {
+            return entry.count.get();
+        }
+        long stamp = invalidations.get();
+        long count = notificationRepository.countByReceiverIdAndStateFalse(userId);
+        synchronized (entries) {
+            // A change committed while counting may or may not be included: do not cache
+            if (invalidations.get() == stamp) {
+                entries.put(userId, new Entry(new AtomicLong(count), System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Apply a change to a user's unread count and push the new value
+     * Inside a transaction the change is applied after commit.
+     * @param userId the user ID
+     * @param username the username, used to address the push
+     * @param delta the change, e.g. 1 for a new notification
+     */
+    public void adjust(Long userId, String username, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (entries) {
+                Entry entry = entries.get(userId);
+                if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+                    invalidations.incrementAndGet();
+                    entries.remove(userId);
+                } else {
+                    entry.count.accumulateAndGet(delta, (current, change) -> Math.max(0, current + change));
+                }
+            }
+            push(userId, username);
+        });
+    }
+
+    /**
+     * Drop a user's cached count and push a freshly loaded one
+     * For changes whose effect on the unread count is not known.
+     * @param userId the user ID
+     * @param username the username, used to address the push
+     */
+    public void refresh(Long userId, String username) {
+        afterCommit(() -> {
+            synchronized (entries) {
+                invalidations.incrementAndGet();
+                entries.remove(userId);
+            }
+            push(userId, username);
+        });
+    }
+
+    private void push(Long userId, String username) {
+        if (username == null || !eventPublisher.isUsernameOnline(username)) {
+            return;
+        }
+        try {
+            eventPublisher.publishUnreadCount(username, get(userId));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to push unread count to {}: {}", username, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Entry(AtomicLong count, long expiresAt) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.zone01oujda.moblogging.notification.websocket;
+
+/**
+ * A payload of which only the latest frame per session matters
+ * When several frames with the same key are queued for a slow session, only
+ * the newest one is written; see {@link OutboundFlowControl}.
+ */
+public interface CoalescibleFrame {
+
+    /**
+     * @return the key frames are coalesced by
+     */
+    String coalesceKey();
+}
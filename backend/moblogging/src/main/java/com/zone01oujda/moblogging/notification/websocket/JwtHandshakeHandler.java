@@ -9,6 +9,7 @@ import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 import com.zone01oujda.moblogging.security.JwtTokenProvider;
+import com.zone01oujda.moblogging.security.TokenClaims;
 
 @Component
 public class JwtHandshakeHandler extends DefaultHandshakeHandler {
@@ -28,14 +29,10 @@ public class JwtHandshakeHandler extends DefaultHandshakeHandler {
             return null;
         }
 
-        if (!jwtprovider.validateToken(token)) {
+        TokenClaims claims = jwtprovider.verify(token);
+        if (claims == null || claims.getUsername() == null) {
             return null;
         }
-        String username = jwtprovider.getUsernameIfValid(token);
-        if (username == null) {
-            return null;
-        }
-
-        return () -> username;
+        return new StompPrincipal(claims.getUsername(), claims.getUserId());
     }
 }
@@ -4,6 +4,7 @@ import org.springframework.stereotype.Service;
 
 import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.notification.dto.NotificationDto;
+import com.zone01oujda.moblogging.notification.dto.UnreadCountDto;
 
 /**
  * Service for publishing notification events
@@ -30,6 +31,33 @@ public class NotificationEventPublisher {
         socketHandler.sendNotificationToUser(receiver.getUsername(), notification);
     }
 
+    /**
+     * Publish notification to a user known by username
+     * @param username the recipient username
+     * @param notification the notification to send
+     */
+    public void publishToUsername(String username, NotificationDto notification) {
+        socketHandler.sendNotificationToUser(username, notification);
+    }
+
+    /**
+     * Publish a user's unread-count
+     * @param username the recipient username
+     * @param unreadCount the current number of unread notifications
+     */
+    public void publishUnreadCount(String username, long unreadCount) {
+        socketHandler.sendUnreadCountToUser(username, new UnreadCountDto(unreadCount));
+    }
+
+    /**
+     * Check if a user has an open STOMP session on any node
+     * @param username the username
+     * @return true if the user is connected
+     */
+    public boolean isUsernameOnline(String username) {
+        return socketHandler.isUserConnected(username);
+    }
+
     /**
      * Publish notification to all users
      * @param notification the notification to broadcast
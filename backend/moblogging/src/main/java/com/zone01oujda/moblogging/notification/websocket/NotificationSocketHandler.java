@@ -1,28 +1,27 @@
 package com.zone01oujda.moblogging.notification.websocket;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
+import com.zone01oujda.moblogging.notification.cluster.ClusterMessageRouter;
 import com.zone01oujda.moblogging.notification.dto.NotificationDto;
+import com.zone01oujda.moblogging.notification.dto.UnreadCountDto;
 
 /**
  * WebSocket controller for handling real-time notifications
- * Manages STOMP message routing for notification delivery
+ * Manages STOMP message routing for notification delivery; outgoing messages
+ * go through the cluster router so they reach users connected to other nodes
  */
 @Controller
 public class NotificationSocketHandler {
     
-    private final SimpMessagingTemplate messagingTemplate;
-    
-    // Track connected users: userId -> session count
-    private final ConcurrentHashMap<Long, Integer> connectedUsers = new ConcurrentHashMap<>();
+    private final ClusterMessageRouter router;
+    private final PresenceTracker presenceTracker;
 
-    public NotificationSocketHandler(SimpMessagingTemplate messagingTemplate) {
-        this.messagingTemplate = messagingTemplate;
+    public NotificationSocketHandler(ClusterMessageRouter router, PresenceTracker presenceTracker) {
+        this.router = router;
+        this.presenceTracker = presenceTracker;
     }
 
     /**
@@ -32,20 +31,35 @@ public class NotificationSocketHandler {
      * @param notification the notification to send
      */
     public void sendNotificationToUser(String username, NotificationDto notification) {
-        messagingTemplate.convertAndSendToUser(
+        router.sendToUser(
             username,
             "/queue/notifications",
             notification
         );
     }
 
+    /**
+     * Send an unread-count update to a specific user
+     * Uses its own queue so clients that render every notification frame
+     * never mistake a count for a notification
+     * @param username the recipient username
+     * @param update the unread-count frame
+     */
+    public void sendUnreadCountToUser(String username, UnreadCountDto update) {
+        router.sendToUser(
+            username,
+            "/queue/unread-count",
+            update
+        );
+    }
+
     /**
      * Send notification to all connected users
      * Used for broadcast notifications (e.g., system announcements)
      * @param notification the notification to broadcast
      */
     public void broadcastNotification(NotificationDto notification) {
-        messagingTemplate.convertAndSend("/topic/notifications", notification);
+        router.broadcast("/topic/notifications", notification);
     }
 
     /**
@@ -60,31 +74,22 @@ public class NotificationSocketHandler {
 
     /**
      * Handle user connection
-     * Tracks when a user connects
-     * @param userId the connected user ID
+     * Kept for older clients; presence now comes from STOMP session events
+     * @param userId the user ID claimed by the client, ignored
      */
     @MessageMapping("/users/connect")
     public void handleUserConnect(Long userId) {
-        try {
-            connectedUsers.compute(userId, (k, v) -> v == null ? 1 : v + 1);
-        } catch (NumberFormatException e) {
-            // Log invalid user ID
-        }
+        // no-op
     }
 
     /**
      * Handle user disconnection
-     * Tracks when a user disconnects
-     * @param userId the disconnected user ID
+     * Kept for older clients; presence now comes from STOMP session events
+     * @param userId the user ID claimed by the client, ignored
      */
     @MessageMapping("/users/disconnect")
     public void handleUserDisconnect(Long userId) {
-        try {
-            
-            connectedUsers.computeIfPresent(userId, (k, v) -> v > 1 ? v - 1 : null);
-        } catch (NumberFormatException e) {
-            // Log invalid user ID
-        }
+        // no-op
     }
 
     /**
@@ -93,7 +98,16 @@ public class NotificationSocketHandler {
      * @return true if user has active connections
      */
     public boolean isUserConnected(Long userId) {
-        return connectedUsers.containsKey(userId);
+        return presenceTracker.isOnline(userId);
+    }
+
+    /**
+     * Check if a user is currently connected to any node
+     * @param username the username to check
+     * @return true if user has active connections
+     */
+    public boolean isUserConnected(String username) {
+        return router.isOnline(username);
     }
 
     /**
@@ -102,7 +116,7 @@ public class NotificationSocketHandler {
      * @return number of active sessions, 0 if not connected
      */
     public int getConnectedSessionCount(Long userId) {
-        return connectedUsers.getOrDefault(userId, 0);
+        return presenceTracker.getSessionCount(userId);
     }
 
     /**
@@ -110,6 +124,6 @@ public class NotificationSocketHandler {
      * @return count of users with active connections
      */
     public int getTotalConnectedUsers() {
-        return connectedUsers.size();
+        return presenceTracker.getOnlineUserCount();
     }
 }
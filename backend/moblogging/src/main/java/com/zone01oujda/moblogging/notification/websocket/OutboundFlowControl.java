@@ -0,0 +1,193 @@
+package com.zone01oujda.moblogging.notification.websocket;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * Sheds notification frames for sessions that cannot keep up
+ * Sits on the client outbound channel. Per session it counts frames queued
+ * but not yet written; past the limit new notification frames are dropped
+ * (they are persisted, the client catches up on its next fetch), and frames
+ * that waited longer than the age limit are dropped before writing.
+ * Coalescible frames such as unread counts are always collapsed to the
+ * newest one per key. Other frames (CONNECTED, ERROR, receipts) always pass.
+ */
+@Component
+public class OutboundFlowControl implements ExecutorChannelInterceptor {
+
+    /** Native header carrying the key of a coalescible frame */
+    public static final String COALESCE_KEY_HEADER = "coalesce-key";
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundFlowControl.class);
+
+    private static final String SEQUENCE_HEADER = "flowSequence";
+    private static final String QUEUED_AT_HEADER = "flowQueuedAt";
+
+    private final Map<String, SessionFlow> sessions = new ConcurrentHashMap<>();
+    private final int maxPendingFrames;
+    private final long maxFrameAgeMillis;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public OutboundFlowControl(@Value("${websocket.outbound.max-pending-frames:100}") int maxPendingFrames,
+            @Value("${websocket.outbound.max-frame-age-ms:10000}") long maxFrameAgeMillis) {
+        this.maxPendingFrames = Math.max(1, maxPendingFrames);
+        this.maxFrameAgeMillis = maxFrameAgeMillis;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            Principal user = event.getUser();
+            sessions.putIfAbsent(sessionId, new SessionFlow(user != null ? user.getName() : null));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        SessionFlow flow = sessions.remove(event.getSessionId());
+        if (flow != null && (flow.dropped.sum() > 0 || flow.coalesced.sum() > 0)) {
+            logger.debug("Session of {} closed after {} dropped and {} coalesced frames",
+                flow.username, flow.dropped.sum(), flow.coalesced.sum());
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SessionFlow flow = flowOf(message);
+        if (flow == null || !isNotification(message)) {
+            return message;
+        }
+        String key = SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(COALESCE_KEY_HEADER);
+        if (key == null && flow.pending.get() >= maxPendingFrames) {
+            flow.dropped.increment();
+            dropped.increment();
+            return null;
+        }
+        flow.pending.incrementAndGet();
+        MessageBuilder<?> builder = MessageBuilder.fromMessage(message)
+            .setHeader(QUEUED_AT_HEADER, System.currentTimeMillis());
+        if (key != null) {
+            long sequence = flow.sequence.incrementAndGet();
+            flow.latest.put(key, sequence);
+            builder.setHeader(SEQUENCE_HEADER, sequence);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        SessionFlow flow = flowOf(message);
+        Long queuedAt = message.getHeaders().get(QUEUED_AT_HEADER, Long.class);
+        if (flow == null || queuedAt == null) {
+            return message;
+        }
+        Long sequence = message.getHeaders().get(SEQUENCE_HEADER, Long.class);
+        if (sequence != null) {
+            String key = SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(COALESCE_KEY_HEADER);
+            Long latest = key != null ? flow.latest.get(key) : null;
+            if (latest != null && sequence < latest) {
+                // afterMessageHandled is not called for frames dropped here, so release the slot now
+                flow.pending.decrementAndGet();
+                flow.coalesced.increment();
+                coalesced.increment();
+                return null;
+            }
+        } else if (System.currentTimeMillis() - queuedAt > maxFrameAgeMillis) {
+            flow.pending.decrementAndGet();
+            flow.dropped.increment();
+            dropped.increment();
+            return null;
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+            Exception ex) {
+        SessionFlow flow = flowOf(message);
+        if (flow != null && message.getHeaders().containsKey(QUEUED_AT_HEADER)) {
+            flow.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return notification frames dropped since startup
+     */
+    public long getDroppedFrames() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return notification frames coalesced since startup
+     */
+    public long getCoalescedFrames() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Session IDs are left out: SockJS transports carry them in their URLs
+     * @return user, dropped, coalesced and pending frame counts of every open session that shed frames
+     */
+    public List<Map<String, Object>> getSessionStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (SessionFlow flow : sessions.values()) {
+            long sessionDropped = flow.dropped.sum();
+            long sessionCoalesced = flow.coalesced.sum();
+            if (sessionDropped > 0 || sessionCoalesced > 0) {
+                stats.add(Map.of(
+                    "user", flow.username != null ? flow.username : "",
+                    "dropped", sessionDropped,
+                    "coalesced", sessionCoalesced,
+                    "pending", flow.pending.get()));
+            }
+        }
+        return stats;
+    }
+
+    private SessionFlow flowOf(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? sessions.get(sessionId) : null;
+    }
+
+    private static boolean isNotification(Message<?> message) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return destination != null
+            && (destination.startsWith("/queue/notifications") || destination.startsWith("/queue/unread-count")
+                || destination.startsWith("/topic/notifications"));
+    }
+
+    private static final class SessionFlow {
+        private final String username;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong sequence = new AtomicLong();
+        private final Map<String, Long> latest = new ConcurrentHashMap<>();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+
+        private SessionFlow(String username) {
+            this.username = username;
+        }
+    }
+}
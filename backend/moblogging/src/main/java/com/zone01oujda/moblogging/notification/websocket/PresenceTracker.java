@@ -0,0 +1,208 @@
+package com.zone01oujda.moblogging.notification.websocket;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * Tracks which users have an open STOMP session on this node
+ * Sessions are registered from connect and disconnect events and keyed by
+ * the authenticated principal, never by what the client claims. Every inbound
+ * frame, heartbeats included, refreshes its session; sessions that stay
+ * silent past the stale timeout are swept, so crashed tabs do not linger.
+ */
+@Component
+public class PresenceTracker implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceTracker.class);
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> sessionCounts = new ConcurrentHashMap<>();
+    private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+    private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
+    private final long staleMillis;
+
+    public PresenceTracker(@Value("${websocket.presence.stale-ms:60000}") long staleMillis) {
+        this.staleMillis = staleMillis;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        register(SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders()), event.getUser());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        remove(event.getSessionId());
+    }
+
+    /**
+     * Refresh the session of every inbound frame, heartbeats included
+     * A session swept while its client was merely slow is registered again.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        Session session = sessions.get(sessionId);
+        if (session != null) {
+            session.lastSeen = System.currentTimeMillis();
+        } else if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.DISCONNECT) {
+            register(sessionId, SimpMessageHeaderAccessor.getUser(message.getHeaders()));
+        }
+        return message;
+    }
+
+    /**
+     * Drop sessions that have been silent longer than the stale timeout
+     */
+    @Scheduled(fixedDelayString = "${websocket.presence.sweep-interval-ms:30000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - staleMillis;
+        int swept = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().lastSeen < cutoff && remove(entry.getKey())) {
+                swept++;
+            }
+        }
+        if (swept > 0) {
+            logger.debug("Swept {} stale STOMP sessions", swept);
+        }
+    }
+
+    /**
+     * @param username the username
+     * @return true if the user has at least one live session
+     */
+    public boolean isOnline(String username) {
+        return username != null && sessionCounts.containsKey(username);
+    }
+
+    /**
+     * @param userId the user ID
+     * @return true if the user has at least one live session
+     */
+    public boolean isOnline(Long userId) {
+        return userId != null && usernames.containsKey(userId);
+    }
+
+    /**
+     * @param userId the user ID
+     * @return number of live sessions of the user
+     */
+    public int getSessionCount(Long userId) {
+        String username = userId != null ? usernames.get(userId) : null;
+        return username != null ? sessionCounts.getOrDefault(username, 0) : 0;
+    }
+
+    /**
+     * @return number of users with at least one live session
+     */
+    public int getOnlineUserCount() {
+        return sessionCounts.size();
+    }
+
+    /**
+     * @return usernames with at least one live session, a live view
+     */
+    public Set<String> getOnlineUsernames() {
+        return sessionCounts.keySet();
+    }
+
+    /**
+     * Get told when a user gets their first or loses their last session
+     * @param listener the listener
+     */
+    public void addListener(PresenceListener listener) {
+        listeners.add(listener);
+    }
+
+    private void register(String sessionId, Principal user) {
+        if (sessionId == null || user == null) {
+            return;
+        }
+        Long userId = user instanceof StompPrincipal principal ? principal.getUserId() : null;
+        Session session = new Session(user.getName(), userId);
+        if (sessions.putIfAbsent(sessionId, session) != null) {
+            return;
+        }
+        // The ID index is updated under the per-user count so it never races a last disconnect
+        Integer count = sessionCounts.compute(session.username, (name, current) -> {
+            if (userId != null) {
+                usernames.put(userId, name);
+            }
+            return current == null ? 1 : current + 1;
+        });
+        if (count == 1) {
+            notifyListeners(session.username, true);
+        }
+    }
+
+    private boolean remove(String sessionId) {
+        Session session = sessionId != null ? sessions.remove(sessionId) : null;
+        if (session == null) {
+            return false;
+        }
+        Integer left = sessionCounts.computeIfPresent(session.username, (name, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            if (session.userId != null) {
+                usernames.remove(session.userId, name);
+            }
+            return null;
+        });
+        if (left == null) {
+            notifyListeners(session.username, false);
+        }
+        return true;
+    }
+
+    private void notifyListeners(String username, boolean online) {
+        for (PresenceListener listener : listeners) {
+            try {
+                listener.onPresenceChanged(username, online);
+            } catch (RuntimeException e) {
+                logger.warn("Presence listener failed for {}: {}", username, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Receives presence transitions of users on this node
+     */
+    @FunctionalInterface
+    public interface PresenceListener {
+        void onPresenceChanged(String username, boolean online);
+    }
+
+    private static final class Session {
+        private final String username;
+        private final Long userId;
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        private Session(String username, Long userId) {
+            this.username = username;
+            this.userId = userId;
+        }
+    }
+}
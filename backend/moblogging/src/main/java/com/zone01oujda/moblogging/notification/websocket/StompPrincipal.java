@@ -0,0 +1,30 @@
+package com.zone01oujda.moblogging.notification.websocket;
+
+import java.security.Principal;
+
+/**
+ * Principal of an authenticated STOMP session
+ * Carries the user ID from the token so presence can be looked up by ID.
+ */
+public final class StompPrincipal implements Principal {
+
+    private final String name;
+    private final Long userId;
+
+    public StompPrincipal(String name, Long userId) {
+        this.name = name;
+        this.userId = userId;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the user ID, or null if the token carried none
+     */
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -1,7 +1,13 @@
 package com.zone01oujda.moblogging.notification.websocket;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -18,23 +24,78 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
 
-    public WebSocketConfig(JwtHandshakeInterceptor jwtHandshakeInterceptor, JwtHandshakeHandler jwtHandshakeHandler) {
+    private final PresenceTracker presenceTracker;
+
+    private final OutboundFlowControl outboundFlowControl;
+
+    private final long heartbeatMillis;
+
+    private final int sendBufferSizeLimit;
+
+    private final int sendTimeLimitMillis;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    public WebSocketConfig(JwtHandshakeInterceptor jwtHandshakeInterceptor, JwtHandshakeHandler jwtHandshakeHandler,
+            PresenceTracker presenceTracker, OutboundFlowControl outboundFlowControl,
+            @Value("${websocket.heartbeat-ms:10000}") long heartbeatMillis,
+            @Value("${websocket.send-buffer-size-limit:262144}") int sendBufferSizeLimit,
+            @Value("${websocket.send-time-limit-ms:10000}") int sendTimeLimitMillis) {
         this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
         this.jwtHandshakeHandler = jwtHandshakeHandler;
+        this.presenceTracker = presenceTracker;
+        this.outboundFlowControl = outboundFlowControl;
+        this.heartbeatMillis = heartbeatMillis;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+    }
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy TaskScheduler messageBrokerTaskScheduler) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
     }
 
     /**
      * Configure message broker for STOMP messages
      * - enableSimpleBroker: enables in-memory message broker
+     * - setHeartbeatValue: heartbeats both ways, so presence sees silent sessions
      * - setApplicationDestinationPrefixes: prefix for app-handled messages
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] { heartbeatMillis, heartbeatMillis })
+                .setTaskScheduler(messageBrokerTaskScheduler);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
 
+    /**
+     * Route every inbound frame through presence tracking
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(presenceTracker);
+    }
+
+    /**
+     * Shed notification frames for sessions that fall behind
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(outboundFlowControl);
+    }
+
+    /**
+     * Bound what a single session may hold in its send buffer and how long
+     * a send may block; a session over either limit is closed
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit);
+        registration.setSendTimeLimit(sendTimeLimitMillis);
+    }
+
     /**
      * Register STOMP endpoints for WebSocket connections
      * Allows clients to connect via /ws endpoint
@@ -13,26 +13,32 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.zone01oujda.moblogging.media.service.MediaServingService;
 import com.zone01oujda.moblogging.post.dto.CreatePostDto;
+import com.zone01oujda.moblogging.post.dto.FeedPostDto;
 import com.zone01oujda.moblogging.post.dto.PostDto;
 import com.zone01oujda.moblogging.post.dto.UpdatePostDto;
 import com.zone01oujda.moblogging.post.service.PostService;
 import com.zone01oujda.moblogging.util.response.ApiResponse;
+import com.zone01oujda.moblogging.util.response.CursorPage;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.core.io.Resource;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/posts")
 public class PostController {
 
     private final PostService postService;
+    private final MediaServingService mediaServingService;
 
-    public PostController(PostService postService) {
+    public PostController(PostService postService, MediaServingService mediaServingService) {
         this.postService = postService;
+        this.mediaServingService = mediaServingService;
     }
 
     @PostMapping(value = "/create", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
@@ -43,19 +49,27 @@ public class PostController {
     }
 
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<PostDto>>> getPosts(
+    public ResponseEntity<ApiResponse<Page<FeedPostDto>>> getPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        Page<PostDto> posts = postService.getPosts(page, size);
+        Page<FeedPostDto> posts = postService.getPosts(page, size);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Posts retrieved successfully", posts));
+    }
+
+    @GetMapping(params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<FeedPostDto>>> getPostsByCursor(
+            @RequestParam("cursor") String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        CursorPage<FeedPostDto> posts = postService.getPostsByCursor(cursor, size);
         return ResponseEntity.ok(new ApiResponse<>(true, "Posts retrieved successfully", posts));
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<ApiResponse<Page<PostDto>>> getPostsByUser(
+    public ResponseEntity<ApiResponse<Page<FeedPostDto>>> getPostsByUser(
             @PathVariable("userId") Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        Page<PostDto> posts = postService.getUserPosts(userId, page, size);
+        Page<FeedPostDto> posts = postService.getUserPosts(userId, page, size);
         return ResponseEntity.ok(new ApiResponse<>(true, "User posts retrieved successfully", posts));
     }
 
@@ -82,23 +96,14 @@ public class PostController {
     }
 
     @GetMapping("/{postId}/media/{index}")
-    public ResponseEntity<Resource> getPostMedia(
+    public void getPostMedia(
             @PathVariable("postId") Long postId,
-            @PathVariable("index") int index) {
-        Resource resource = postService.getPostMedia(postId, index);
-        MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
-        try {
-            Path path = Path.of(resource.getFile().getAbsolutePath());
-            String detected = Files.probeContentType(path);
-            if (detected != null) {
-                mediaType = MediaType.parseMediaType(detected);
-            }
-        } catch (Exception ignored) {
-            // fallback to octet-stream
-        }
-        return ResponseEntity.ok()
-                .contentType(mediaType)
-                .body(resource);
+            @PathVariable("index") int index,
+            @RequestParam(value = "variant", required = false) String variant,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Resource resource = postService.getPostMedia(postId, index, variant);
+        mediaServingService.serve(resource, request, response);
     }
     
 }
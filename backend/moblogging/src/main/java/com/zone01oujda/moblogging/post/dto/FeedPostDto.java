@@ -1,8 +1,98 @@
 package com.zone01oujda.moblogging.post.dto;
 
+import java.time.LocalDateTime;
+
+import com.zone01oujda.moblogging.post.enums.PostVisibility;
+
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
+/**
+ * Lightweight post summary for feeds
+ * Built straight from a JPQL constructor expression, so no comment tree
+ * or other entity graph is loaded to render a timeline card
+ */
 @Data
+@NoArgsConstructor
 public class FeedPostDto {
-    
+
+    /**
+     * Post ID
+     */
+    public Long id;
+
+    /**
+     * ID of the post creator
+     */
+    public Long creatorId;
+
+    /**
+     * Username of the post creator
+     */
+    public String creatorUsername;
+
+    /**
+     * Post title
+     */
+    public String postTitle;
+
+    /**
+     * Post content/body
+     */
+    public String postContent;
+
+    /**
+     * Post subjects/tags
+     */
+    public String[] postSubject;
+
+    /**
+     * Post visibility level
+     */
+    public PostVisibility postVisibility;
+
+    /**
+     * Media file URLs
+     */
+    public String[] medias;
+
+    /**
+     * Timestamp when the post was created
+     */
+    public LocalDateTime createdAt;
+
+    /**
+     * Number of visible comments on the post
+     */
+    public long commentCount;
+
+    /**
+     * Number of LIKE reactions
+     */
+    public long likeCount;
+
+    /**
+     * Number of DISLIKE reactions
+     */
+    public long dislikeCount;
+
+    /**
+     * Constructor used by the feed projection queries
+     */
+    public FeedPostDto(Long id, Long creatorId, String creatorUsername, String postTitle, String postContent,
+            String subject, PostVisibility postVisibility, String mediaUrl, LocalDateTime createdAt,
+            Long commentCount, Long likeCount, Long dislikeCount) {
+        this.id = id;
+        this.creatorId = creatorId;
+        this.creatorUsername = creatorUsername;
+        this.postTitle = postTitle;
+        this.postContent = postContent;
+        this.postSubject = subject != null ? subject.split(",") : new String[0];
+        this.postVisibility = postVisibility;
+        this.medias = (mediaUrl != null && !mediaUrl.isEmpty()) ? mediaUrl.split(",") : new String[0];
+        this.createdAt = createdAt;
+        this.commentCount = commentCount != null ? commentCount : 0;
+        this.likeCount = likeCount != null ? likeCount : 0;
+        this.dislikeCount = dislikeCount != null ? dislikeCount : 0;
+    }
 }
@@ -1,5 +1,9 @@
 package com.zone01oujda.moblogging.post.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -7,15 +11,93 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.zone01oujda.moblogging.entity.Post;
+import com.zone01oujda.moblogging.post.dto.FeedPostDto;
 import com.zone01oujda.moblogging.post.enums.PostVisibility;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
+    String FEED_SELECT = """
+        SELECT new com.zone01oujda.moblogging.post.dto.FeedPostDto(
+            p.id, u.id, u.username, p.title, p.content, p.subject, p.visibility, p.mediaUrl, p.createdAt,
+            (SELECT COUNT(c) FROM Comment c WHERE c.post.id = p.id AND c.hidden = false),
+            p.likeCount, p.dislikeCount)
+        FROM Post p JOIN p.creator u
+        """;
+
+    String AUDIENCE_FILTER = """
+         AND (p.visibility IS NULL
+           OR p.visibility = com.zone01oujda.moblogging.post.enums.PostVisibility.PUBLIC
+           OR p.creator.id = :viewerId
+           OR (p.visibility = com.zone01oujda.moblogging.post.enums.PostVisibility.CLOSEFRIEND
+               AND EXISTS (SELECT cf.id FROM CloseFriend cf
+                           WHERE cf.owner.id = p.creator.id AND cf.friend.id = :viewerId)))
+        """;
+
     Page<Post> findByHiddenFalse(Pageable pageable);
 
     Page<Post> findByCreatorIdAndHiddenFalse(Long creatorId, Pageable pageable);
 
     Page<Post> findByCreatorIdInAndHiddenFalse(java.util.Collection<Long> creatorIds, Pageable pageable);
 
+    /**
+     * Newest visible post IDs of the given creators that the viewer may see
+     */
+    @Query("SELECT p.id FROM Post p WHERE p.creator.id IN :creatorIds AND p.hidden = false" + AUDIENCE_FILTER
+            + " ORDER BY p.id DESC")
+    List<Long> findRecentIdsByCreatorIds(@Param("creatorIds") Collection<Long> creatorIds,
+            @Param("viewerId") Long viewerId, Pageable pageable);
+
+    /**
+     * Visible post IDs of the given creators older than a post, restricted to what the viewer may see
+     */
+    @Query("SELECT p.id FROM Post p WHERE p.creator.id IN :creatorIds AND p.hidden = false AND p.id < :beforeId"
+            + AUDIENCE_FILTER + " ORDER BY p.id DESC")
+    List<Long> findRecentIdsByCreatorIdsBefore(@Param("creatorIds") Collection<Long> creatorIds,
+            @Param("viewerId") Long viewerId, @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query(FEED_SELECT + " WHERE p.id IN :ids AND p.hidden = false")
+    List<FeedPostDto> findVisibleFeedPostsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = FEED_SELECT + """
+         WHERE (:creatorId IS NULL OR u.id = :creatorId)
+           AND (:includeHidden = true OR p.hidden = false)
+         ORDER BY p.createdAt DESC, p.id DESC
+        """,
+        countQuery = """
+        SELECT COUNT(p) FROM Post p
+        WHERE (:creatorId IS NULL OR p.creator.id = :creatorId)
+          AND (:includeHidden = true OR p.hidden = false)
+        """)
+    Page<FeedPostDto> findFeedPosts(
+            @Param("creatorId") Long creatorId,
+            @Param("includeHidden") boolean includeHidden,
+            Pageable pageable);
+
+    /**
+     * Page of a creator's visible posts restricted to what the viewer may see,
+     * so page sizes and totals never count posts outside the viewer's audience
+     */
+    @Query(value = FEED_SELECT + " WHERE u.id = :creatorId AND p.hidden = false" + AUDIENCE_FILTER
+            + " ORDER BY p.createdAt DESC, p.id DESC",
+        countQuery = "SELECT COUNT(p) FROM Post p WHERE p.creator.id = :creatorId AND p.hidden = false"
+            + AUDIENCE_FILTER)
+    Page<FeedPostDto> findFeedPostsVisibleTo(
+            @Param("creatorId") Long creatorId,
+            @Param("viewerId") Long viewerId,
+            Pageable pageable);
+
+    @Query(FEED_SELECT + " ORDER BY p.createdAt DESC, p.id DESC")
+    List<FeedPostDto> findLatestFeedPosts(Pageable pageable);
+
+    @Query(FEED_SELECT + """
+         WHERE p.createdAt < :createdAt
+            OR (p.createdAt = :createdAt AND p.id < :id)
+         ORDER BY p.createdAt DESC, p.id DESC
+        """)
+    List<FeedPostDto> findLatestFeedPostsBefore(
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+
     @Query("""
         SELECT p FROM Post p
         WHERE (:visibility IS NULL OR p.visibility = :visibility)
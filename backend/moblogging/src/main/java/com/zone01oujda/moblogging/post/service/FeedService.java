@@ -1,5 +1,332 @@
 package com.zone01oujda.moblogging.post.service;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zone01oujda.moblogging.post.enums.PostVisibility;
+import com.zone01oujda.moblogging.post.repository.PostRepository;
+import com.zone01oujda.moblogging.user.repository.FollowRepository;
+import com.zone01oujda.moblogging.user.service.CloseFriendService;
+import com.zone01oujda.moblogging.user.service.FollowGraph;
+
+/**
+ * Home timeline engine.
+ * Regular creators fan out on write: new post IDs are pushed into the cached
+ * timelines of their followers. Creators above the celebrity threshold are
+ * skipped at write time and merged in on read instead. Cached timelines hold
+ * the newest posts only; reads past them continue with a keyset query.
+ * Timelines only ever hold posts the viewer may see, so pages are filled
+ * from visible posts.
+ */
+@Service
 public class FeedService {
-    
+
+    private final PostRepository postRepository;
+    private final FollowRepository followRepository;
+    private final FollowGraph followGraph;
+    private final CloseFriendService closeFriendService;
+    private final int timelineCapacity;
+    private final long celebrityThreshold;
+    private final Map<Long, Timeline> timelines;
+    private final AtomicLong changes = new AtomicLong();
+
+    public FeedService(PostRepository postRepository, FollowRepository followRepository, FollowGraph followGraph,
+            CloseFriendService closeFriendService,
+            @Value("${feed.timeline.capacity:500}") int timelineCapacity,
+            @Value("${feed.celebrity-threshold:5000}") long celebrityThreshold,
+            @Value("${feed.timeline.max-cached:10000}") int maxCachedTimelines) {
+        this.postRepository = postRepository;
+        this.followRepository = followRepository;
+        this.followGraph = followGraph;
+        // Drop the follower's timeline only once the graph has the change, on every node
+        followGraph.addListener((followerId, followingId, added) -> invalidate(followerId));
+        this.closeFriendService = closeFriendService;
+        // Joining or leaving a close-friends list changes which posts the friend may see
+        closeFriendService.addListener((ownerId, friendId) -> invalidate(friendId));
+        this.timelineCapacity = timelineCapacity;
+        this.celebrityThreshold = celebrityThreshold;
+        this.timelines = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Timeline> eldest) {
+                return size() > maxCachedTimelines;
+            }
+        });
+    }
+
+    /**
+     * Push a freshly created post into the timelines of the creator and,
+     * unless the creator is a celebrity, of every follower in the post's
+     * audience with a cached timeline
+     * @param creatorId the post creator ID
+     * @param postId the new post ID
+     * @param visibility the post visibility
+     */
+    public void onPostCreated(Long creatorId, Long postId, PostVisibility visibility) {
+        changes.incrementAndGet();
+        Timeline own = timelines.get(creatorId);
+        if (own != null) {
+            own.push(postId);
+        }
+        if (visibility == PostVisibility.PRIVATE || isCelebrity(creatorId)) {
+            return;
+        }
+        for (long followerId : followGraph.getFollowerIds(creatorId)) {
+            Timeline timeline = timelines.get(followerId);
+            if (timeline != null && closeFriendService.canView(followerId, creatorId, visibility)) {
+                timeline.push(postId);
+            }
+        }
+    }
+
+    /**
+     * Handle a post whose visibility or hidden flag changed
+     * Once committed, the post is dropped from every cached timeline and the
+     * timelines of the creator and followers are rebuilt on next read, with
+     * the post if they may now see it.
+     * @param creatorId the post creator ID
+     * @param postId the changed post ID
+     */
+    public void onPostChanged(Long creatorId, Long postId) {
+        Runnable action = () -> {
+            onPostDeleted(postId);
+            invalidate(creatorId);
+            for (long followerId : followGraph.getFollowerIds(creatorId)) {
+                invalidate(followerId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Drop a post from every cached timeline
+     * @param postId the deleted post ID
+     */
+    public void onPostDeleted(Long postId) {
+        List<Timeline> snapshot;
+        synchronized (timelines) {
+            changes.incrementAndGet();
+            snapshot = new ArrayList<>(timelines.values());
+        }
+        for (Timeline timeline : snapshot) {
+            timeline.remove(postId);
+        }
+    }
+
+    /**
+     * Forget a user's cached timeline so it is rebuilt on next read
+     * Called when the user's follow list changes
+     * @param userId the viewer ID
+     */
+    public void invalidate(Long userId) {
+        synchronized (timelines) {
+            changes.incrementAndGet();
+            timelines.remove(userId);
+        }
+    }
+
+    /**
+     * Get a page of post IDs from the viewer's home timeline, newest first
+     * @param viewerId the viewer ID
+     * @param pageable the page request
+     * @return page of post IDs
+     */
+    public Page<Long> getTimeline(Long viewerId, Pageable pageable) {
+        List<Long> ids = timelineIds(viewerId);
+        long end = pageable.getOffset() + pageable.getPageSize();
+        boolean full = isFull(ids);
+        if (full && end > ids.size()) {
+            // The page reaches past the cached timeline; one extra row tells whether more follow
+            List<Long> older = olderThan(viewerId, ids.get(ids.size() - 1), (int) (end - ids.size()) + 1);
+            List<Long> all = new ArrayList<>(ids.size() + older.size());
+            all.addAll(ids);
+            all.addAll(older);
+            ids = all;
+            full = ids.size() > end;
+        }
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = (int) Math.min(end, ids.size());
+        // Past the cache the exact total is unknown: report one more while older posts remain
+        long total = full ? Math.max(ids.size(), end) + 1 : ids.size();
+        return new PageImpl<>(ids.subList(from, to), pageable, total);
+    }
+
+    /**
+     * Get post IDs from the viewer's home timeline that are older than a given post
+     * @param viewerId the viewer ID
+     * @param beforeId exclusive upper bound, or null to start from the newest post
+     * @param limit maximum number of IDs to return
+     * @return post IDs, newest first
+     */
+    public List<Long> getTimelineBefore(Long viewerId, Long beforeId, int limit) {
+        List<Long> ids = timelineIds(viewerId);
+        int from = 0;
+        if (beforeId != null) {
+            while (from < ids.size() && ids.get(from) >= beforeId) {
+                from++;
+            }
+        }
+        List<Long> slice = ids.subList(from, Math.min(from + limit, ids.size()));
+        if (slice.size() == limit || !isFull(ids)) {
+            return slice;
+        }
+        long bound = ids.get(ids.size() - 1);
+        if (beforeId != null && beforeId < bound) {
+            bound = beforeId;
+        }
+        List<Long> result = new ArrayList<>(limit);
+        result.addAll(slice);
+        result.addAll(olderThan(viewerId, bound, limit - slice.size()));
+        return result;
+    }
+
+    private boolean isFull(List<Long> ids) {
+        return !ids.isEmpty() && ids.size() >= timelineCapacity;
+    }
+
+    /**
+     * Post IDs older than the cached timeline, read straight from the database
+     */
+    private List<Long> olderThan(Long viewerId, long beforeId, int limit) {
+        Set<Long> creators = new LinkedHashSet<>();
+        creators.add(viewerId);
+        for (long id : followGraph.getFollowingIds(viewerId)) {
+            creators.add(id);
+        }
+        return postRepository.findRecentIdsByCreatorIdsBefore(creators, viewerId, beforeId,
+            PageRequest.of(0, limit));
+    }
+
+    private List<Long> timelineIds(Long viewerId) {
+        Timeline timeline = timelines.get(viewerId);
+        if (timeline == null) {
+            // Built outside the map lock so one viewer's queries never stall the others
+            long stamp = changes.get();
+            Timeline built = buildTimeline(viewerId);
+            synchronized (timelines) {
+                timeline = timelines.get(viewerId);
+                if (timeline == null) {
+                    timeline = built;
+                    // A post or follow change during the build may be missing from it: do not cache
+                    if (changes.get() == stamp) {
+                        timelines.put(viewerId, built);
+                    }
+                }
+            }
+        }
+
+        List<Long> ids = timeline.snapshot();
+        if (!timeline.celebrityIds.isEmpty()) {
+            List<Long> pulled = postRepository.findRecentIdsByCreatorIds(
+                timeline.celebrityIds, viewerId, PageRequest.of(0, timelineCapacity));
+            ids = mergeDescending(ids, pulled);
+        }
+        return ids.size() > timelineCapacity ? ids.subList(0, timelineCapacity) : ids;
+    }
+
+    private Timeline buildTimeline(Long viewerId) {
+        List<Long> followingIds = Arrays.stream(followGraph.getFollowingIds(viewerId)).boxed().toList();
+        Set<Long> celebrityIds;
+        if (followingIds.isEmpty()) {
+            celebrityIds = Set.of();
+        } else if (followGraph.isLoaded()) {
+            celebrityIds = followingIds.stream().filter(this::isCelebrity).collect(Collectors.toUnmodifiableSet());
+        } else {
+            celebrityIds = Set.copyOf(followRepository.findIdsWithFollowerCountAbove(followingIds, celebrityThreshold));
+        }
+
+        Set<Long> pushedCreators = new LinkedHashSet<>();
+        pushedCreators.add(viewerId);
+        for (Long id : followingIds) {
+            if (!celebrityIds.contains(id)) {
+                pushedCreators.add(id);
+            }
+        }
+
+        Timeline timeline = new Timeline(timelineCapacity, celebrityIds);
+        List<Long> recent = postRepository.findRecentIdsByCreatorIds(
+            pushedCreators, viewerId, PageRequest.of(0, timelineCapacity));
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            timeline.push(recent.get(i));
+        }
+        return timeline;
+    }
+
+    private boolean isCelebrity(Long creatorId) {
+        return followGraph.getFollowerCount(creatorId) > celebrityThreshold;
+    }
+
+    private List<Long> mergeDescending(List<Long> left, List<Long> right) {
+        List<Long> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() || j < right.size()) {
+            Long next;
+            if (j >= right.size() || (i < left.size() && left.get(i) >= right.get(j))) {
+                next = left.get(i++);
+            } else {
+                next = right.get(j++);
+            }
+            if (merged.isEmpty() || !merged.get(merged.size() - 1).equals(next)) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Bounded, newest-first list of post IDs for one viewer
+     */
+    private static final class Timeline {
+        private final int capacity;
+        private final Set<Long> celebrityIds;
+        private final Deque<Long> postIds = new ArrayDeque<>();
+
+        Timeline(int capacity, Set<Long> celebrityIds) {
+            this.capacity = capacity;
+            this.celebrityIds = celebrityIds;
+        }
+
+        synchronized void push(Long postId) {
+            postIds.addFirst(postId);
+            if (postIds.size() > capacity) {
+                postIds.removeLast();
+            }
+        }
+
+        synchronized void remove(Long postId) {
+            postIds.remove(postId);
+        }
+
+        synchronized List<Long> snapshot() {
+            return new ArrayList<>(postIds);
+        }
+    }
 }
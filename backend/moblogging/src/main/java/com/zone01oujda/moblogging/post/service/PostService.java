@@ -4,36 +4,41 @@ import java.net.MalformedURLException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.zone01oujda.moblogging.comment.dto.CommentDto;
 import com.zone01oujda.moblogging.comment.util.CommentMapper;
-import com.zone01oujda.moblogging.entity.Follow;
 import com.zone01oujda.moblogging.entity.Post;
 import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.exception.AccessDeniedException;
 import com.zone01oujda.moblogging.exception.BadRequestException;
 import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
+import com.zone01oujda.moblogging.media.service.ImageVariantService;
+import com.zone01oujda.moblogging.media.service.MediaStorageService;
 import com.zone01oujda.moblogging.notification.enums.NotificationType;
-import com.zone01oujda.moblogging.notification.service.NotificationService;
+import com.zone01oujda.moblogging.notification.service.NotificationFanoutService;
 import com.zone01oujda.moblogging.post.dto.CreatePostDto;
+import com.zone01oujda.moblogging.post.dto.FeedPostDto;
 import com.zone01oujda.moblogging.post.dto.PostDto;
+import com.zone01oujda.moblogging.post.enums.PostVisibility;
 import com.zone01oujda.moblogging.post.repository.PostRepository;
-import com.zone01oujda.moblogging.user.repository.FollowRepository;
 import com.zone01oujda.moblogging.user.repository.UserRepository;
-import com.zone01oujda.moblogging.util.FileUploadUtil;
+import com.zone01oujda.moblogging.user.service.CloseFriendService;
+import com.zone01oujda.moblogging.util.Cursor;
 import com.zone01oujda.moblogging.util.SecurityUtil;
+import com.zone01oujda.moblogging.util.response.CursorPage;
 
 /**
  * Service class for post operations
@@ -41,26 +46,35 @@ import com.zone01oujda.moblogging.util.SecurityUtil;
 @Service
 public class PostService {
 
-    private final FileUploadUtil fileUploadUtil;
+    private final MediaStorageService mediaStorageService;
+    private final ImageVariantService imageVariantService;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
-    private final FollowRepository followRepository;
-    private final NotificationService notificationService;
+    private final NotificationFanoutService notificationFanoutService;
+    private final FeedService feedService;
+    private final CloseFriendService closeFriendService;
     private final com.zone01oujda.moblogging.report.repository.ReportRepository reportRepository;
     private final String uploadDir;
+    private final int maxCursorPageSize;
 
-    public PostService(PostRepository postRepository, UserRepository userRepository, FileUploadUtil fileUploadUtil,
-            FollowRepository followRepository,
-            NotificationService notificationService,
+    public PostService(PostRepository postRepository, UserRepository userRepository, MediaStorageService mediaStorageService,
+            ImageVariantService imageVariantService,
+            NotificationFanoutService notificationFanoutService,
+            FeedService feedService,
+            CloseFriendService closeFriendService,
             com.zone01oujda.moblogging.report.repository.ReportRepository reportRepository,
-            @Value("${files.uploadDirectory}") String uploadDir) {
+            @Value("${files.uploadDirectory}") String uploadDir,
+            @Value("${posts.cursor.max-page-size:50}") int maxCursorPageSize) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
-        this.fileUploadUtil = fileUploadUtil;
-        this.followRepository = followRepository;
-        this.notificationService = notificationService;
+        this.mediaStorageService = mediaStorageService;
+        this.imageVariantService = imageVariantService;
+        this.notificationFanoutService = notificationFanoutService;
+        this.feedService = feedService;
+        this.closeFriendService = closeFriendService;
         this.reportRepository = reportRepository;
         this.uploadDir = uploadDir;
+        this.maxCursorPageSize = Math.max(1, maxCursorPageSize);
     }
 
     /**
@@ -104,17 +118,18 @@ public class PostService {
         post.setCreator(user);
         post.setMediaUrl(mediaUrls);
         post = postRepository.save(post);
+        PostVisibility visibility = post.getVisibility();
+        feedService.onPostCreated(user.getId(), post.getId(), visibility);
 
-        List<Follow> followers = followRepository.findByFollowingId(user.getId());
-        for (Follow follow : followers) {
-            User receiver = follow.getFollower();
-            if (receiver != null && !receiver.getId().equals(user.getId())) {
-                notificationService.createNotification(
-                    receiver,
-                    NotificationType.POST,
-                    user.getUsername() + " created a new post: " + post.getTitle()
-                );
-            }
+        // Only followers in the post's audience hear about it; private posts notify nobody
+        if (visibility != PostVisibility.PRIVATE) {
+            Long authorId = user.getId();
+            notificationFanoutService.notifyFollowers(
+                authorId,
+                NotificationType.POST,
+                user.getUsername() + " created a new post: " + post.getTitle(),
+                visibility
+            );
         }
 
         // Convert to DTO and return
@@ -135,46 +150,74 @@ public class PostService {
         if (Boolean.TRUE.equals(post.getHidden()) && !isAdmin) {
             throw new ResourceNotFoundException("Post not found");
         }
+        // Posts outside the viewer's audience are reported as missing, not forbidden
+        if (!isAdmin && !closeFriendService.canView(SecurityUtil.getCurrentUserId(),
+                post.getCreator().getId(), post.getVisibility())) {
+            throw new ResourceNotFoundException("Post not found");
+        }
 
         return convertToDto(post);
     }
 
-    public Page<PostDto> getPosts(int page, int size) {
-        PageRequest pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+    public Page<FeedPostDto> getPosts(int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size);
         if (SecurityUtil.hasRole("ADMIN")) {
-            return postRepository.findAll(pageable).map(this::convertToDto);
+            return postRepository.findFeedPosts(null, true, pageable);
         }
         User currentUser = requireAuthenticatedUser();
 
-        List<Long> creatorIds = new ArrayList<>();
-        creatorIds.add(currentUser.getId());
-        for (Follow follow : followRepository.findByFollowerId(currentUser.getId())) {
-            if (follow.getFollowing() != null && follow.getFollowing().getId() != null) {
-                creatorIds.add(follow.getFollowing().getId());
-            }
-        }
-        // Preserve order but remove duplicates
-        Set<Long> distinctCreatorIds = new LinkedHashSet<>(creatorIds);
-        if (distinctCreatorIds.isEmpty()) {
-            return Page.empty(pageable);
+        Page<Long> timeline = feedService.getTimeline(currentUser.getId(), pageable);
+        return new PageImpl<>(loadFeedPostsInOrder(currentUser.getId(), timeline.getContent()), pageable,
+            timeline.getTotalElements());
+    }
+
+    /**
+     * Get the home feed using keyset pagination
+     * @param cursor opaque cursor from the previous slice, or blank for the first one
+     * @param size maximum number of posts to return, clamped to the configured maximum
+     * @return slice of posts with the cursor for the next one
+     */
+    public CursorPage<FeedPostDto> getPostsByCursor(String cursor, int size) {
+        size = Math.min(Math.max(1, size), maxCursorPageSize);
+        Cursor position = Cursor.decode(cursor);
+        PageRequest limit = PageRequest.of(0, size + 1);
+        if (SecurityUtil.hasRole("ADMIN")) {
+            List<FeedPostDto> rows = position == null
+                ? postRepository.findLatestFeedPosts(limit)
+                : postRepository.findLatestFeedPostsBefore(position.getCreatedAt(), position.getId(), limit);
+            return CursorPage.of(rows, size, FeedPostDto::getCreatedAt, FeedPostDto::getId, Function.identity());
         }
+        User currentUser = requireAuthenticatedUser();
 
-        return postRepository.findByCreatorIdInAndHiddenFalse(distinctCreatorIds, pageable)
-                .map(this::convertToDto);
+        // Timelines are ordered by post ID, so only the ID part of the cursor matters here.
+        // A post that became invisible since it was cached is replaced from further down.
+        List<FeedPostDto> rows = new ArrayList<>(size + 1);
+        Long beforeId = position == null ? null : position.getId();
+        while (rows.size() <= size) {
+            int wanted = size + 1 - rows.size();
+            List<Long> ids = feedService.getTimelineBefore(currentUser.getId(), beforeId, wanted);
+            if (ids.isEmpty()) {
+                break;
+            }
+            rows.addAll(loadFeedPostsInOrder(currentUser.getId(), ids));
+            if (ids.size() < wanted) {
+                break;
+            }
+            beforeId = ids.get(ids.size() - 1);
+        }
+        return CursorPage.of(rows, size, FeedPostDto::getCreatedAt, FeedPostDto::getId, Function.identity());
     }
 
-    public Page<PostDto> getUserPosts(Long userId, int page, int size) {
+    public Page<FeedPostDto> getUserPosts(Long userId, int page, int size) {
         if (!userRepository.existsById(userId)) {
             throw new ResourceNotFoundException("User not found");
         }
 
-        PageRequest pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
         if (SecurityUtil.hasRole("ADMIN")) {
-            return postRepository.findForAdmin(null, null, userId, pageable).map(this::convertToDto);
+            return postRepository.findFeedPosts(userId, true, PageRequest.of(page, size));
         }
-
-        return postRepository.findByCreatorIdAndHiddenFalse(userId, pageable)
-                .map(this::convertToDto);
+        return postRepository.findFeedPostsVisibleTo(userId, SecurityUtil.getCurrentUserId(),
+            PageRequest.of(page, size));
     }
 
     public PostDto updatePost(Long postId, com.zone01oujda.moblogging.post.dto.UpdatePostDto dto) {
@@ -204,17 +247,24 @@ public class PostService {
                 post.setSubject(String.join(",", subjects));
             }
         }
+        boolean audienceChanged = dto.getPostVisibility() != null
+            && dto.getPostVisibility() != post.getVisibility();
         if (dto.getPostVisibility() != null) {
             post.setPostVisibility(dto.getPostVisibility());
         }
 
+        String replacedMedia = null;
         if (dto.getMultipartFiles() != null && dto.getMultipartFiles().length > 0) {
-            deleteExistingMedia(post.getMediaUrl());
+            replacedMedia = post.getMediaUrl();
             String mediaUrls = uploadMediaFiles(dto.getMultipartFiles());
             post.setMediaUrl(mediaUrls);
         }
 
         Post saved = postRepository.save(post);
+        deleteExistingMedia(replacedMedia);
+        if (audienceChanged) {
+            feedService.onPostChanged(saved.getCreator().getId(), saved.getId());
+        }
         return convertToDto(saved);
     }
 
@@ -234,11 +284,17 @@ public class PostService {
 
         reportRepository.deleteByPostId(postId);
         postRepository.delete(post);
+        deleteExistingMedia(post.getMediaUrl());
+        feedService.onPostDeleted(postId);
     }
 
-    public Resource getPostMedia(Long postId, int index) {
+    public Resource getPostMedia(Long postId, int index, String variant) {
         Post post = postRepository.findById(postId)
             .orElseThrow(() -> new ResourceNotFoundException("Post not found"));
+        if (!SecurityUtil.hasRole("ADMIN") && !closeFriendService.canView(SecurityUtil.getCurrentUserId(),
+                post.getCreator().getId(), post.getVisibility())) {
+            throw new ResourceNotFoundException("Post not found");
+        }
 
         if (post.getMediaUrl() == null || post.getMediaUrl().isBlank()) {
             throw new ResourceNotFoundException("Media not found");
@@ -271,7 +327,7 @@ public class PostService {
         }
 
         try {
-            Resource resource = new UrlResource(normalizedFile.toUri());
+            Resource resource = new UrlResource(imageVariantService.select(normalizedFile, variant).toUri());
             if (!resource.exists()) {
                 throw new ResourceNotFoundException("Media not found");
             }
@@ -281,6 +337,28 @@ public class PostService {
         }
     }
 
+    /**
+     * Load feed posts by ID in the given order, leaving out hidden posts and
+     * posts outside the viewer's audience
+     */
+    private List<FeedPostDto> loadFeedPostsInOrder(Long viewerId, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, FeedPostDto> postsById = new HashMap<>();
+        for (FeedPostDto post : postRepository.findVisibleFeedPostsByIdIn(ids)) {
+            postsById.put(post.getId(), post);
+        }
+        List<FeedPostDto> posts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            FeedPostDto post = postsById.get(id);
+            if (post != null && closeFriendService.canView(viewerId, post.getCreatorId(), post.getPostVisibility())) {
+                posts.add(post);
+            }
+        }
+        return posts;
+    }
+
     private User requireAuthenticatedUser() {
         String username = SecurityUtil.getCurrentUsername();
         if (username == null) {
@@ -320,7 +398,7 @@ public class PostService {
         List<String> uploadedUrls = new java.util.ArrayList<>();
         for (org.springframework.web.multipart.MultipartFile file : files) {
             if (file != null && !file.isEmpty()) {
-                String url = fileUploadUtil.upload(file);
+                String url = mediaStorageService.store(file);
                 uploadedUrls.add(url);
             }
         }
@@ -355,44 +433,12 @@ public class PostService {
         return dto;
     }
 
+    /**
+     * Release the stored media of a post; shared files are kept while still referenced
+     * @param mediaUrl comma-separated media paths
+     */
     private void deleteExistingMedia(String mediaUrl) {
-        if (mediaUrl == null || mediaUrl.isBlank()) {
-            return;
-        }
-        String[] paths = mediaUrl.split(",");
-        for (String stored : paths) {
-            Path resolved = resolveMediaPath(stored.trim());
-            if (resolved != null) {
-                try {
-                    fileUploadUtil.delete(resolved.toString());
-                } catch (RuntimeException ignored) {
-                    // Best-effort cleanup; continue deleting remaining files
-                }
-            }
-        }
-    }
-
-    private Path resolveMediaPath(String storedPath) {
-        if (storedPath == null || storedPath.isBlank()) {
-            return null;
-        }
-
-        String relative = storedPath.startsWith("/") ? storedPath.substring(1) : storedPath;
-        String normalizedBase = uploadDir.endsWith("/") ? uploadDir : uploadDir + "/";
-
-        Path filePath;
-        if (relative.startsWith(normalizedBase)) {
-            filePath = Paths.get(relative);
-        } else {
-            filePath = Paths.get(uploadDir, relative);
-        }
-
-        Path normalizedBasePath = Paths.get(uploadDir).normalize();
-        Path normalizedFile = filePath.normalize();
-        if (!normalizedFile.startsWith(normalizedBasePath)) {
-            return null;
-        }
-        return normalizedFile;
+        mediaStorageService.releaseAll(mediaUrl);
     }
 
     private String trimToNull(String value) {
@@ -1,5 +1,8 @@
 package com.zone01oujda.moblogging.react.controller;
 
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -8,6 +11,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.zone01oujda.moblogging.react.dto.ReactDto;
@@ -48,6 +52,13 @@ public class ReactController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Reaction summary retrieved successfully", summary));
     }
 
+    @GetMapping("/posts")
+    public ResponseEntity<ApiResponse<Map<Long, ReactSummaryDto>>> getPostReactSummaries(
+            @RequestParam("ids") List<Long> postIds) {
+        Map<Long, ReactSummaryDto> summaries = reactService.getPostSummaries(postIds);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Reaction summaries retrieved successfully", summaries));
+    }
+
     @PostMapping("/comments/{commentId}")
     public ResponseEntity<ApiResponse<ReactSummaryDto>> addCommentReact(
             @PathVariable("commentId") Long commentId,
@@ -68,5 +79,12 @@ public class ReactController {
         ReactSummaryDto summary = reactService.getCommentSummary(commentId);
         return ResponseEntity.ok(new ApiResponse<>(true, "Reaction summary retrieved successfully", summary));
     }
+
+    @GetMapping("/comments")
+    public ResponseEntity<ApiResponse<Map<Long, ReactSummaryDto>>> getCommentReactSummaries(
+            @RequestParam("ids") List<Long> commentIds) {
+        Map<Long, ReactSummaryDto> summaries = reactService.getCommentSummaries(commentIds);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Reaction summaries retrieved successfully", summaries));
+    }
     
 }
@@ -1,8 +1,12 @@
 package com.zone01oujda.moblogging.react.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.zone01oujda.moblogging.entity.CommentReact;
 import com.zone01oujda.moblogging.react.enums.ReactType;
@@ -11,4 +15,8 @@ public interface CommentReactRepository extends JpaRepository<CommentReact, Long
     Optional<CommentReact> findByUserIdAndCommentId(Long userId, Long commentId);
     long countByCommentIdAndType(Long commentId, ReactType type);
     void deleteByUserIdAndCommentId(Long userId, Long commentId);
+
+    @Query("SELECT r.comment.id, r.type FROM CommentReact r WHERE r.user.id = :userId AND r.comment.id IN :commentIds")
+    List<Object[]> findTypesByUserIdAndCommentIdIn(@Param("userId") Long userId,
+            @Param("commentIds") Collection<Long> commentIds);
 }
@@ -1,8 +1,12 @@
 package com.zone01oujda.moblogging.react.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.zone01oujda.moblogging.entity.React;
 import com.zone01oujda.moblogging.react.enums.ReactType;
@@ -11,4 +15,8 @@ public interface ReactRepository extends JpaRepository<React, Long> {
     Optional<React> findByUserIdAndPostId(Long userId, Long postId);
     long countByPostIdAndType(Long postId, ReactType type);
     void deleteByUserIdAndPostId(Long userId, Long postId);
+
+    @Query("SELECT r.post.id, r.type FROM React r WHERE r.user.id = :userId AND r.post.id IN :postIds")
+    List<Object[]> findTypesByUserIdAndPostIdIn(@Param("userId") Long userId,
+            @Param("postIds") Collection<Long> postIds);
 }
@@ -1,5 +1,12 @@
 package com.zone01oujda.moblogging.react.service;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -10,6 +17,7 @@ import com.zone01oujda.moblogging.entity.Post;
 import com.zone01oujda.moblogging.entity.React;
 import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.exception.AccessDeniedException;
+import com.zone01oujda.moblogging.exception.BadRequestException;
 import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
 import com.zone01oujda.moblogging.notification.enums.NotificationType;
 import com.zone01oujda.moblogging.notification.service.NotificationService;
@@ -24,12 +32,15 @@ import com.zone01oujda.moblogging.util.SecurityUtil;
 @Service
 public class ReactService {
 
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final ReactRepository reactRepository;
     private final CommentReactRepository commentReactRepository;
     private final UserRepository userRepository;
     private final PostRepository postRepository;
     private final CommentRepository commentRepository;
     private final NotificationService notificationService;
+    private final ReactionCounterService counterService;
 
     public ReactService(
             ReactRepository reactRepository,
@@ -37,13 +48,15 @@ public class ReactService {
             UserRepository userRepository,
             PostRepository postRepository,
             CommentRepository commentRepository,
-            NotificationService notificationService) {
+            NotificationService notificationService,
+            ReactionCounterService counterService) {
         this.reactRepository = reactRepository;
         this.commentReactRepository = commentReactRepository;
         this.userRepository = userRepository;
         this.postRepository = postRepository;
         this.commentRepository = commentRepository;
         this.notificationService = notificationService;
+        this.counterService = counterService;
     }
 
     public ReactSummaryDto reactToPost(Long postId, ReactType type) {
@@ -61,14 +74,19 @@ public class ReactService {
             react.setType(type);
         }
         reactRepository.save(react);
+        if (previousType != type) {
+            counterService.recordPostChange(postId, previousType, type);
+        }
 
         User owner = post.getCreator();
         if (owner != null && !owner.getId().equals(user.getId())
                 && (previousType == null || previousType != type)) {
-            notificationService.createNotification(
+            notificationService.createCoalescedNotification(
                 owner,
                 NotificationType.REACT,
-                user.getUsername() + " reacted to your post"
+                "post:" + postId,
+                user,
+                "reacted to your post"
             );
         }
 
@@ -78,9 +96,14 @@ public class ReactService {
     @Transactional
     public ReactSummaryDto removePostReaction(Long postId) {
         User user = getCurrentUser();
-        reactRepository.findByUserIdAndPostId(user.getId(), postId)
-            .ifPresent(reactRepository::delete);
-        return getPostSummary(postId, user.getId());
+        ReactType removed = reactRepository.findByUserIdAndPostId(user.getId(), postId)
+            .map(react -> {
+                reactRepository.delete(react);
+                counterService.recordPostChange(postId, react.getType(), null);
+                return react.getType();
+            })
+            .orElse(null);
+        return withoutReaction(getPostSummary(postId, user.getId()), removed);
     }
 
     public ReactSummaryDto getPostSummary(Long postId) {
@@ -89,12 +112,23 @@ public class ReactService {
     }
 
     private ReactSummaryDto getPostSummary(Long postId, Long userId) {
-        long likes = reactRepository.countByPostIdAndType(postId, ReactType.LIKE);
-        long dislikes = reactRepository.countByPostIdAndType(postId, ReactType.DISLIKE);
+        long[] counts = counterService.getPostCounts(postId);
         ReactType userReact = reactRepository.findByUserIdAndPostId(userId, postId)
             .map(React::getType)
             .orElse(null);
-        return new ReactSummaryDto(likes, dislikes, userReact);
+        return new ReactSummaryDto(counts[0], counts[1], userReact);
+    }
+
+    /**
+     * Get reaction summaries for several posts at once
+     * @param postIds the post IDs
+     * @return map of post ID to summary, for existing posts only
+     */
+    public Map<Long, ReactSummaryDto> getPostSummaries(List<Long> postIds) {
+        Set<Long> ids = validateBatch(postIds);
+        User user = getCurrentUser();
+        Map<Long, ReactType> userReacts = toTypeMap(reactRepository.findTypesByUserIdAndPostIdIn(user.getId(), ids));
+        return toSummaries(counterService.getPostCounts(ids), userReacts);
     }
 
     public ReactSummaryDto reactToComment(Long commentId, ReactType type) {
@@ -105,12 +139,16 @@ public class ReactService {
         ensurePostInteractable(comment.getPost());
 
         CommentReact react = commentReactRepository.findByUserIdAndCommentId(user.getId(), commentId).orElse(null);
+        ReactType previousType = react != null ? react.getType() : null;
         if (react == null) {
             react = new CommentReact(user, comment, type);
         } else {
             react.setType(type);
         }
         commentReactRepository.save(react);
+        if (previousType != type) {
+            counterService.recordCommentChange(commentId, previousType, type);
+        }
 
         return getCommentSummary(commentId, user.getId());
     }
@@ -118,9 +156,27 @@ public class ReactService {
     @Transactional
     public ReactSummaryDto removeCommentReaction(Long commentId) {
         User user = getCurrentUser();
-        commentReactRepository.findByUserIdAndCommentId(user.getId(), commentId)
-            .ifPresent(commentReactRepository::delete);
-        return getCommentSummary(commentId, user.getId());
+        ReactType removed = commentReactRepository.findByUserIdAndCommentId(user.getId(), commentId)
+            .map(react -> {
+                commentReactRepository.delete(react);
+                counterService.recordCommentChange(commentId, react.getType(), null);
+                return react.getType();
+            })
+            .orElse(null);
+        return withoutReaction(getCommentSummary(commentId, user.getId()), removed);
+    }
+
+    /**
+     * Counts as they will read once the removal commits; its delta is only
+     * recorded then, so the summary read inside the transaction lacks it
+     */
+    private static ReactSummaryDto withoutReaction(ReactSummaryDto summary, ReactType removed) {
+        if (removed == ReactType.LIKE) {
+            summary.setLikeCount(Math.max(0, summary.getLikeCount() - 1));
+        } else if (removed == ReactType.DISLIKE) {
+            summary.setDislikeCount(Math.max(0, summary.getDislikeCount() - 1));
+        }
+        return summary;
     }
 
     public ReactSummaryDto getCommentSummary(Long commentId) {
@@ -129,12 +185,53 @@ public class ReactService {
     }
 
     private ReactSummaryDto getCommentSummary(Long commentId, Long userId) {
-        long likes = commentReactRepository.countByCommentIdAndType(commentId, ReactType.LIKE);
-        long dislikes = commentReactRepository.countByCommentIdAndType(commentId, ReactType.DISLIKE);
+        long[] counts = counterService.getCommentCounts(commentId);
         ReactType userReact = commentReactRepository.findByUserIdAndCommentId(userId, commentId)
             .map(CommentReact::getType)
             .orElse(null);
-        return new ReactSummaryDto(likes, dislikes, userReact);
+        return new ReactSummaryDto(counts[0], counts[1], userReact);
+    }
+
+    /**
+     * Get reaction summaries for several comments at once
+     * @param commentIds the comment IDs
+     * @return map of comment ID to summary, for existing comments only
+     */
+    public Map<Long, ReactSummaryDto> getCommentSummaries(List<Long> commentIds) {
+        Set<Long> ids = validateBatch(commentIds);
+        User user = getCurrentUser();
+        Map<Long, ReactType> userReacts = toTypeMap(
+            commentReactRepository.findTypesByUserIdAndCommentIdIn(user.getId(), ids));
+        return toSummaries(counterService.getCommentCounts(ids), userReacts);
+    }
+
+    private Set<Long> validateBatch(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("At least one ID is required");
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            throw new BadRequestException("At least one ID is required");
+        }
+        if (distinct.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("At most " + MAX_BATCH_SIZE + " IDs can be requested at once");
+        }
+        return distinct;
+    }
+
+    private Map<Long, ReactType> toTypeMap(List<Object[]> rows) {
+        Map<Long, ReactType> types = new HashMap<>();
+        for (Object[] row : rows) {
+            types.put((Long) row[0], (ReactType) row[1]);
+        }
+        return types;
+    }
+
+    private Map<Long, ReactSummaryDto> toSummaries(Map<Long, long[]> counts, Map<Long, ReactType> userReacts) {
+        Map<Long, ReactSummaryDto> summaries = new LinkedHashMap<>();
+        counts.forEach((id, count) -> summaries.put(id, new ReactSummaryDto(count[0], count[1], userReacts.get(id))));
+        return summaries;
     }
 
     private User getCurrentUser() {
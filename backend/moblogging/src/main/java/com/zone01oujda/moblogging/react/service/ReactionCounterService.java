@@ -0,0 +1,329 @@
+package com.zone01oujda.moblogging.react.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zone01oujda.moblogging.react.enums.ReactType;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Denormalized like/dislike counters for posts and comments
+ * Reactions only touch striped in-memory accumulators; deltas are flushed to
+ * the counter columns in JDBC batches. The reacts and comment_reacts tables stay
+ * the source of truth and are used to periodically reconcile the counters.
+ */
+@Service
+public class ReactionCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactionCounterService.class);
+
+    private static final String FLUSH_POSTS =
+        "UPDATE posts SET like_count = like_count + ?, dislike_count = dislike_count + ? WHERE id = ?";
+    private static final String FLUSH_COMMENTS =
+        "UPDATE comments SET like_count = like_count + ?, dislike_count = dislike_count + ? WHERE id = ?";
+    private static final String READ_POST = "SELECT like_count, dislike_count FROM posts WHERE id = ?";
+    private static final String READ_COMMENT = "SELECT like_count, dislike_count FROM comments WHERE id = ?";
+    private static final RowMapper<long[]> COUNTS = (rs, rowNum) -> new long[] { rs.getLong(1), rs.getLong(2) };
+    private static final String RECONCILE_POSTS = """
+        UPDATE posts p SET like_count = c.likes, dislike_count = c.dislikes
+        FROM (
+            SELECT t.id,
+                (SELECT COUNT(*) FROM reacts r WHERE r.post_id = t.id AND r.type = 'LIKE') AS likes,
+                (SELECT COUNT(*) FROM reacts r WHERE r.post_id = t.id AND r.type = 'DISLIKE') AS dislikes
+            FROM posts t
+            WHERE t.id > ? AND t.id <= ?
+        ) c
+        WHERE p.id = c.id AND (p.like_count <> c.likes OR p.dislike_count <> c.dislikes)
+        """;
+    private static final String RECONCILE_COMMENTS = """
+        UPDATE comments p SET like_count = c.likes, dislike_count = c.dislikes
+        FROM (
+            SELECT t.id,
+                (SELECT COUNT(*) FROM comment_reacts r WHERE r.comment_id = t.id AND r.type = 'LIKE') AS likes,
+                (SELECT COUNT(*) FROM comment_reacts r WHERE r.comment_id = t.id AND r.type = 'DISLIKE') AS dislikes
+            FROM comments t
+            WHERE t.id > ? AND t.id <= ?
+        ) c
+        WHERE p.id = c.id AND (p.like_count <> c.likes OR p.dislike_count <> c.dislikes)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeltaStripes postDeltas;
+    private final DeltaStripes commentDeltas;
+    private final Object flushLock = new Object();
+    private final int reconcileBatchSize;
+
+    public ReactionCounterService(JdbcTemplate jdbcTemplate,
+            @Value("${reacts.counters.stripes:16}") int stripes,
+            @Value("${reacts.counters.reconcile-batch-size:1000}") int reconcileBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reconcileBatchSize = Math.max(1, reconcileBatchSize);
+        this.postDeltas = new DeltaStripes(stripes);
+        this.commentDeltas = new DeltaStripes(stripes);
+    }
+
+    /**
+     * Record a change of a user's reaction on a post
+     * Inside a transaction the delta is only recorded once it commits.
+     * @param postId the post ID
+     * @param previous the previous reaction type, or null if none
+     * @param current the new reaction type, or null if removed
+     */
+    public void recordPostChange(Long postId, ReactType previous, ReactType current) {
+        afterCommit(() -> postDeltas.add(postId,
+            delta(ReactType.LIKE, previous, current), delta(ReactType.DISLIKE, previous, current)));
+    }
+
+    /**
+     * Record a change of a user's reaction on a comment
+     * Inside a transaction the delta is only recorded once it commits.
+     * @param commentId the comment ID
+     * @param previous the previous reaction type, or null if none
+     * @param current the new reaction type, or null if removed
+     */
+    public void recordCommentChange(Long commentId, ReactType previous, ReactType current) {
+        afterCommit(() -> commentDeltas.add(commentId,
+            delta(ReactType.LIKE, previous, current), delta(ReactType.DISLIKE, previous, current)));
+    }
+
+    /**
+     * Run a delta update after the surrounding transaction commits, or now
+     * without one, so a rollback leaves no phantom delta and a reconcile
+     * never recounts rows the delta is not yet applied to
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Get the like/dislike counts of a post, including deltas not yet flushed
+     * @param postId the post ID
+     * @return array of {likes, dislikes}
+     */
+    public long[] getPostCounts(Long postId) {
+        return withPending(jdbcTemplate.query(READ_POST, COUNTS, postId), postDeltas.pending(postId));
+    }
+
+    /**
+     * Get the like/dislike counts of a comment, including deltas not yet flushed
+     * @param commentId the comment ID
+     * @return array of {likes, dislikes}
+     */
+    public long[] getCommentCounts(Long commentId) {
+        return withPending(jdbcTemplate.query(READ_COMMENT, COUNTS, commentId), commentDeltas.pending(commentId));
+    }
+
+    /**
+     * Get the like/dislike counts of several posts in one query
+     * @param postIds the post IDs
+     * @return map of post ID to {likes, dislikes}, for existing posts only
+     */
+    public Map<Long, long[]> getPostCounts(Collection<Long> postIds) {
+        return readCounts("posts", postIds, postDeltas);
+    }
+
+    /**
+     * Get the like/dislike counts of several comments in one query
+     * @param commentIds the comment IDs
+     * @return map of comment ID to {likes, dislikes}, for existing comments only
+     */
+    public Map<Long, long[]> getCommentCounts(Collection<Long> commentIds) {
+        return readCounts("comments", commentIds, commentDeltas);
+    }
+
+    /**
+     * Flush accumulated deltas to the counter columns
+     */
+    @Scheduled(fixedDelayString = "${reacts.counters.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            flush(FLUSH_POSTS, postDeltas);
+            flush(FLUSH_COMMENTS, commentDeltas);
+        }
+    }
+
+    /**
+     * Recompute counters from the reaction tables to repair drift
+     * Rows are recounted in ID ranges and only rows whose counts differ are
+     * written. The recount already includes every pending delta of its range,
+     * so those deltas are dropped afterwards instead of being flushed on top.
+     */
+    @Scheduled(fixedDelayString = "${reacts.counters.reconcile-interval-ms:3600000}",
+            initialDelayString = "${reacts.counters.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        try {
+            int posts = reconcile("posts", RECONCILE_POSTS, postDeltas);
+            int comments = reconcile("comments", RECONCILE_COMMENTS, commentDeltas);
+            if (posts > 0 || comments > 0) {
+                logger.info("Reaction counters repaired for {} posts and {} comments", posts, comments);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Reaction counter reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private int reconcile(String table, String sql, DeltaStripes deltas) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM " + table, Long.class);
+        int repaired = 0;
+        for (long from = 0; maxId != null && from < maxId; from += reconcileBatchSize) {
+            long to = from + reconcileBatchSize;
+            // No flush may land between the recount and the drop of the range's deltas
+            synchronized (flushLock) {
+                repaired += jdbcTemplate.update(sql, from, to);
+                deltas.discard(from, to);
+            }
+        }
+        return repaired;
+    }
+
+    private void flush(String sql, DeltaStripes deltas) {
+        Map<Long, long[]> drained = deltas.drain();
+        if (drained.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(drained.size());
+        drained.forEach((id, delta) -> batch.add(new Object[] { delta[0], delta[1], id }));
+        try {
+            jdbcTemplate.batchUpdate(sql, batch);
+        } catch (RuntimeException e) {
+            // Put the deltas back so the next flush retries them
+            drained.forEach((id, delta) -> deltas.add(id, delta[0], delta[1]));
+            logger.warn("Reaction counter flush failed, {} rows re-queued: {}", drained.size(), e.getMessage());
+        }
+    }
+
+    private Map<Long, long[]> readCounts(String table, Collection<Long> ids, DeltaStripes deltas) {
+        Map<Long, long[]> counts = new HashMap<>();
+        if (ids.isEmpty()) {
+            return counts;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT id, like_count, dislike_count FROM " + table + " WHERE id IN (" + placeholders + ")";
+        jdbcTemplate.query(sql, rs -> {
+            long id = rs.getLong(1);
+            long[] stored = { rs.getLong(2), rs.getLong(3) };
+            counts.put(id, withPending(List.of(stored), deltas.pending(id)));
+        }, ids.toArray());
+        return counts;
+    }
+
+    private static long[] withPending(List<long[]> stored, long[] pending) {
+        long[] counts = stored.isEmpty() ? new long[2] : stored.get(0);
+        counts[0] = Math.max(0, counts[0] + pending[0]);
+        counts[1] = Math.max(0, counts[1] + pending[1]);
+        return counts;
+    }
+
+    private static long delta(ReactType counted, ReactType previous, ReactType current) {
+        long delta = 0;
+        if (previous == counted) {
+            delta--;
+        }
+        if (current == counted) {
+            delta++;
+        }
+        return delta;
+    }
+
+    /**
+     * Lock-striped map of pending {likes, dislikes} deltas per row ID
+     */
+    private static final class DeltaStripes {
+        private final Object[] locks;
+        private final List<Map<Long, long[]>> maps;
+
+        DeltaStripes(int stripes) {
+            int count = Math.max(1, stripes);
+            this.locks = new Object[count];
+            this.maps = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                locks[i] = new Object();
+                maps.add(new HashMap<>());
+            }
+        }
+
+        void add(Long id, long likes, long dislikes) {
+            if (likes == 0 && dislikes == 0) {
+                return;
+            }
+            int stripe = stripeOf(id);
+            synchronized (locks[stripe]) {
+                long[] delta = maps.get(stripe).computeIfAbsent(id, k -> new long[2]);
+                delta[0] += likes;
+                delta[1] += dislikes;
+            }
+        }
+
+        long[] pending(Long id) {
+            int stripe = stripeOf(id);
+            synchronized (locks[stripe]) {
+                long[] delta = maps.get(stripe).get(id);
+                return delta == null ? new long[2] : delta.clone();
+            }
+        }
+
+        Map<Long, long[]> drain() {
+            Map<Long, long[]> drained = new HashMap<>();
+            for (int i = 0; i < locks.length; i++) {
+                Map<Long, long[]> swapped;
+                synchronized (locks[i]) {
+                    swapped = maps.get(i);
+                    if (swapped.isEmpty()) {
+                        continue;
+                    }
+                    maps.set(i, new HashMap<>());
+                }
+                swapped.forEach((id, delta) -> {
+                    if (delta[0] != 0 || delta[1] != 0) {
+                        drained.put(id, delta);
+                    }
+                });
+            }
+            return drained;
+        }
+
+        /**
+         * Drop the pending deltas of the IDs in (fromExclusive, toInclusive]
+         */
+        void discard(long fromExclusive, long toInclusive) {
+            for (int i = 0; i < locks.length; i++) {
+                synchronized (locks[i]) {
+                    maps.get(i).keySet().removeIf(id -> id > fromExclusive && id <= toInclusive);
+                }
+            }
+        }
+
+        private int stripeOf(Long id) {
+            return (Long.hashCode(id) & Integer.MAX_VALUE) % locks.length;
+        }
+    }
+}
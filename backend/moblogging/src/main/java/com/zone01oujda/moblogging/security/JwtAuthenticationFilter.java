@@ -22,9 +22,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final CustomUserDetailsService userDetailsService;
 
-    public  JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, CustomUserDetailsService userDetailsService) {
+    private final PrincipalCache principalCache;
+
+    public  JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, CustomUserDetailsService userDetailsService,
+            PrincipalCache principalCache) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -33,13 +37,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
 
-            if (!jwtTokenProvider.validateToken(token)) {
+            TokenClaims claims = jwtTokenProvider.verify(token);
+            if (claims == null) {
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            String username = jwtTokenProvider.getUsernameIfValid(token);
-            Long userIdFromToken = jwtTokenProvider.getUserId(token);
+            String username = claims.getUsername();
+            Long userIdFromToken = claims.getUserId();
             if (username == null || userIdFromToken == null) {
                 SecurityContextHolder.clearContext();
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -49,7 +54,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             try {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = loadPrincipal(userIdFromToken, username);
                 if (userDetails instanceof CustomUserDetails custom) {
                     if (!custom.getId().equals(userIdFromToken)) {
                         SecurityContextHolder.clearContext();
@@ -78,4 +83,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails loadPrincipal(Long userId, String username) {
+        CustomUserDetails cached = principalCache.get(userId);
+        if (cached != null && cached.getUsername().equals(username)) {
+            return cached;
+        }
+        long stamp = principalCache.stamp();
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (userDetails instanceof CustomUserDetails custom && custom.getId().equals(userId)) {
+            principalCache.put(custom, stamp);
+        }
+        return userDetails;
+    }
 }
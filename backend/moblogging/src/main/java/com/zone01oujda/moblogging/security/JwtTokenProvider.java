@@ -1,8 +1,13 @@
 package com.zone01oujda.moblogging.security;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.crypto.SecretKey;
@@ -12,7 +17,9 @@ import org.springframework.stereotype.Component;
 
 import com.zone01oujda.moblogging.entity.User;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -27,11 +34,25 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private Long jwtAccessExpiration;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheSize;
+
     private SecretKey secretKey ;
 
+    private JwtParser parser;
+
+    private Map<String, TokenClaims> verifiedTokens;
+
     @PostConstruct
     public void init() {
         this.secretKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
+        this.verifiedTokens = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenClaims> eldest) {
+                return size() > verifiedCacheSize || eldest.getValue().isExpired(System.currentTimeMillis());
+            }
+        });
     }
 
     public String generateAccesToken(User user) {
@@ -50,32 +71,47 @@ public class JwtTokenProvider {
         .compact();
     }
 
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+    /**
+     * Verify a token once and return its claims
+     * Recently verified tokens are served from a digest-keyed cache until they expire.
+     * @param token the compact JWT
+     * @return the verified claims, or null if the token is invalid or expired
+     */
+    public TokenClaims verify(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        TokenClaims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached;
+            }
+            verifiedTokens.remove(digest);
+            return null;
         }
-    }
-
-    public String getUsername(String token) {
-        return Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token).getBody().getSubject();
-    }
 
-    public String getUsernameIfValid(String token) {
+        Claims claims;
         try {
-            return getUsername(token);
-        } catch (JwtException | IllegalArgumentException ex) {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
             return null;
         }
+        Date expiration = claims.getExpiration();
+        TokenClaims verified = new TokenClaims(claims.getSubject(), toUserId(claims.get("UserId")),
+            expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+        if (expiration != null) {
+            verifiedTokens.put(digest, verified);
+        }
+        return verified;
     }
 
-    public Long getUserId(String token) {
-        Object val = Jwts.parserBuilder().setSigningKey(secretKey).build()
-            .parseClaimsJws(token)
-            .getBody()
-            .get("UserId");
+    public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+
+    private static Long toUserId(Object val) {
         if (val instanceof Integer) {
             return ((Integer) val).longValue();
         }
@@ -92,4 +128,13 @@ public class JwtTokenProvider {
         return null;
     }
 
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
 }
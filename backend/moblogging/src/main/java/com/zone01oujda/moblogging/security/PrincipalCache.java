@@ -0,0 +1,103 @@
+package com.zone01oujda.moblogging.security;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded, time-limited cache of authenticated principals keyed by user ID
+ * Saves the user lookup on every authenticated request. Anything that changes
+ * what a principal carries (ban state, username, deletion) must call
+ * {@link #invalidate(Long)} so the change applies to the very next request.
+ */
+@Component
+public class PrincipalCache {
+
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PrincipalCache(@Value("${security.principal-cache.ttl-ms:60000}") long ttlMillis,
+            @Value("${security.principal-cache.max-size:10000}") int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Get a cached principal
+     * @param userId the user ID
+     * @return the principal, or null if absent or expired
+     */
+    public CustomUserDetails get(Long userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(userId, entry);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    /**
+     * Take a stamp before loading a principal from the database
+     * @return the current invalidation stamp
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Cache a freshly loaded principal, unless an invalidation happened since
+     * the stamp was taken (the loaded state may already be stale)
+     * @param principal the principal
+     * @param stamp the stamp taken before loading
+     */
+    public void put(CustomUserDetails principal, long stamp) {
+        synchronized (entries) {
+            if (invalidations.get() == stamp) {
+                entries.put(principal.getId(), new Entry(principal, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+    }
+
+    /**
+     * Drop a user's cached principal so it is reloaded on the next request
+     * Inside a transaction the entry is dropped again after commit, so a
+     * concurrent load of the not yet committed row cannot survive.
+     * @param userId the user ID
+     */
+    public void invalidate(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(userId);
+        }
+    }
+
+    private record Entry(CustomUserDetails principal, long expiresAt) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.zone01oujda.moblogging.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.github.bucket4j.Bucket;
+
+/**
+ * Bounded store of rate-limit buckets
+ * Buckets idle for longer than their refill period are full again, so evicting
+ * them loses no state. When the store is full, idle buckets are swept first and
+ * the least recently used ones are dropped only if that is not enough.
+ */
+@Component
+public class RateLimitBucketStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitBucketStore.class);
+
+    private final Map<String, Entry> buckets = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long idleMillis;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimitBucketStore(@Value("${rate-limit.buckets.max-size:100000}") int maxSize,
+            @Value("${rate-limit.buckets.idle-ms:120000}") long idleMillis) {
+        this.maxSize = Math.max(1, maxSize);
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Get the bucket for a key, creating it if needed
+     * @param key the client and limit class key
+     * @param factory creates a new bucket
+     * @return the bucket
+     */
+    public Bucket resolve(String key, Supplier<Bucket> factory) {
+        long now = System.currentTimeMillis();
+        Entry entry = buckets.get(key);
+        if (entry == null) {
+            if (buckets.size() >= maxSize) {
+                makeRoom(now);
+            }
+            entry = buckets.computeIfAbsent(key, k -> {
+                created.increment();
+                return new Entry(factory.get(), now);
+            });
+        }
+        entry.lastAccess = now;
+        return entry.bucket;
+    }
+
+    /**
+     * Count a request refused because its bucket was empty
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * Drop buckets that have been idle longer than the idle timeout
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.buckets.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        int removed = removeIdle(System.currentTimeMillis() - idleMillis);
+        if (removed > 0) {
+            logger.debug("Rate-limit buckets: {} idle evicted, {} live, {} created, {} evicted, {} rejected in total",
+                removed, buckets.size(), getCreatedCount(), getEvictedCount(), getRejectedCount());
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private synchronized void makeRoom(long now) {
+        if (buckets.size() < maxSize) {
+            return;
+        }
+        removeIdle(now - idleMillis);
+        int excess = buckets.size() - maxSize + 1;
+        if (excess <= 0) {
+            return;
+        }
+        // Still full of active clients: drop the least recently used tenth of the store
+        long cutoff = buckets.values().stream()
+            .mapToLong(e -> e.lastAccess)
+            .sorted()
+            .skip(Math.min(buckets.size() - 1, Math.max(excess, maxSize / 10) - 1))
+            .findFirst()
+            .orElse(now);
+        removeIdle(cutoff + 1);
+    }
+
+    private int removeIdle(long accessedBefore) {
+        int removed = 0;
+        Iterator<Entry> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().lastAccess < accessedBefore) {
+                it.remove();
+                removed++;
+            }
+        }
+        evicted.add(removed);
+        return removed;
+    }
+
+    private static final class Entry {
+        private final Bucket bucket;
+        private volatile long lastAccess;
+
+        Entry(Bucket bucket, long lastAccess) {
+            this.bucket = bucket;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
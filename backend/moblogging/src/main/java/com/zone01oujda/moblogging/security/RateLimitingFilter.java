@@ -2,8 +2,6 @@ package com.zone01oujda.moblogging.security;
 
 import java.io.IOException;
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -23,11 +21,16 @@ import tools.jackson.databind.ObjectMapper;
 @Component
 public class RateLimitingFilter extends OncePerRequestFilter {
 
+    private static final LimitClass[] ROUTED_CLASSES = {
+        LimitClass.AUTH_LOGIN, LimitClass.AUTH_REGISTER, LimitClass.AUTH_LOGOUT
+    };
+
     private final ObjectMapper objectMapper;
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitBucketStore bucketStore;
 
-    public RateLimitingFilter(ObjectMapper objectMapper) {
+    public RateLimitingFilter(ObjectMapper objectMapper, RateLimitBucketStore bucketStore) {
         this.objectMapper = objectMapper;
+        this.bucketStore = bucketStore;
     }
 
     @Override
@@ -39,49 +42,29 @@ public class RateLimitingFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        String key = resolveKey(request);
-        Bucket bucket = buckets.computeIfAbsent(key, this::createBucket);
+        LimitClass limitClass = resolveLimitClass(request.getServletPath());
+        String key = resolveClientIp(request) + ":" + limitClass.name();
+        Bucket bucket = bucketStore.resolve(key, limitClass::newBucket);
         if (bucket.tryConsume(1)) {
             filterChain.doFilter(request, response);
             return;
         }
 
+        bucketStore.recordRejected();
+
         response.setStatus(429);
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         ApiResponse<Object> body = new ApiResponse<>(false, "Too many requests");
         response.getWriter().write(objectMapper.writeValueAsString(body));
     }
 
-    private Bucket createBucket(String key) {
-        Bandwidth limit = resolveLimitForKey(key);
-        return Bucket.builder().addLimit(limit).build();
-    }
-
-    private Bandwidth resolveLimitForKey(String key) {
-        if (key.contains(":auth:login")) {
-            return Bandwidth.classic(5, Refill.intervally(5, Duration.ofMinutes(1)));
-        }
-        if (key.contains(":auth:register")) {
-            return Bandwidth.classic(3, Refill.intervally(3, Duration.ofMinutes(1)));
+    private LimitClass resolveLimitClass(String path) {
+        for (LimitClass limitClass : ROUTED_CLASSES) {
+            if (path.startsWith(limitClass.pathPrefix)) {
+                return limitClass;
+            }
         }
-        if (key.contains(":auth:logout")) {
-            return Bandwidth.classic(10, Refill.intervally(10, Duration.ofMinutes(1)));
-        }
-        return Bandwidth.classic(100, Refill.intervally(100, Duration.ofMinutes(1)));
-    }
-
-    private String resolveKey(HttpServletRequest request) {
-        String path = request.getServletPath();
-        String bucketName = "default";
-        if (path.startsWith("/auth/login")) {
-            bucketName = "auth:login";
-        } else if (path.startsWith("/auth/register")) {
-            bucketName = "auth:register";
-        } else if (path.startsWith("/auth/logout")) {
-            bucketName = "auth:logout";
-        }
-        String ip = resolveClientIp(request);
-        return ip + ":" + bucketName;
+        return LimitClass.DEFAULT;
     }
 
     private String resolveClientIp(HttpServletRequest request) {
@@ -91,4 +74,26 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         }
         return request.getRemoteAddr();
     }
+
+    /**
+     * Per-route limits, built once at class load
+     */
+    private enum LimitClass {
+        AUTH_LOGIN("/auth/login", 5),
+        AUTH_REGISTER("/auth/register", 3),
+        AUTH_LOGOUT("/auth/logout", 10),
+        DEFAULT(null, 100);
+
+        private final String pathPrefix;
+        private final Bandwidth bandwidth;
+
+        LimitClass(String pathPrefix, long perMinute) {
+            this.pathPrefix = pathPrefix;
+            this.bandwidth = Bandwidth.classic(perMinute, Refill.intervally(perMinute, Duration.ofMinutes(1)));
+        }
+
+        Bucket newBucket() {
+            return Bucket.builder().addLimit(bandwidth).build();
+        }
+    }
 }
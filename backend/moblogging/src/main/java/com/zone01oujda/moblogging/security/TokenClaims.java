@@ -0,0 +1,46 @@
+package com.zone01oujda.moblogging.security;
+
+/**
+ * Claims of an access token whose signature and expiry have been verified
+ */
+public final class TokenClaims {
+
+    private final String username;
+    private final Long userId;
+    private final long expiresAtMillis;
+
+    public TokenClaims(String username, Long userId, long expiresAtMillis) {
+        this.username = username;
+        this.userId = userId;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * @return the token subject
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return the UserId claim, or null if missing or malformed
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the expiry of the token in epoch milliseconds
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * @param nowMillis the current time in epoch milliseconds
+     * @return whether the token has expired
+     */
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
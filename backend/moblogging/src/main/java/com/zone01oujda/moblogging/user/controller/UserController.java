@@ -1,11 +1,10 @@
 package com.zone01oujda.moblogging.user.controller;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.util.List;
 
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,12 +16,17 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.zone01oujda.moblogging.media.service.MediaServingService;
+import com.zone01oujda.moblogging.user.dto.CloseFriendDto;
 import com.zone01oujda.moblogging.user.dto.UpdateUserDto;
 import com.zone01oujda.moblogging.user.dto.UserDto;
+import com.zone01oujda.moblogging.user.service.CloseFriendService;
 import com.zone01oujda.moblogging.user.service.FollowService;
 import com.zone01oujda.moblogging.user.service.UserService;
 import com.zone01oujda.moblogging.util.response.ApiResponse;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 @RestController
@@ -31,10 +35,15 @@ public class UserController {
 
     private final UserService userService;
     private final FollowService followService;
+    private final CloseFriendService closeFriendService;
+    private final MediaServingService mediaServingService;
 
-    public UserController(UserService userService, FollowService followService) {
+    public UserController(UserService userService, FollowService followService,
+            CloseFriendService closeFriendService, MediaServingService mediaServingService) {
         this.userService = userService;
         this.followService = followService;
+        this.closeFriendService = closeFriendService;
+        this.mediaServingService = mediaServingService;
     }
 
     @GetMapping
@@ -57,21 +66,11 @@ public class UserController {
     }
 
     @GetMapping("/{userId}/profile-picture")
-    public ResponseEntity<Resource> getProfilePicture(@PathVariable("userId") Long userId) {
-        Resource resource = userService.getProfilePicture(userId);
-        MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
-        try {
-            Path path = Path.of(resource.getFile().getAbsolutePath());
-            String detected = Files.probeContentType(path);
-            if (detected != null) {
-                mediaType = MediaType.parseMediaType(detected);
-            }
-        } catch (Exception ignored) {
-            // fallback to octet-stream
-        }
-        return ResponseEntity.ok()
-                .contentType(mediaType)
-                .body(resource);
+    public void getProfilePicture(@PathVariable("userId") Long userId,
+            @RequestParam(value = "variant", required = false) String variant,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Resource resource = userService.getProfilePicture(userId, variant);
+        mediaServingService.serve(resource, request, response);
     }
 
     @GetMapping("/current")
@@ -120,13 +119,33 @@ public class UserController {
         return ResponseEntity.ok(new ApiResponse<>(true, "User unfollowed successfully"));
     }
 
+    @GetMapping("/current/close-friends")
+    public ResponseEntity<ApiResponse<List<CloseFriendDto>>> getCloseFriends() {
+        return ResponseEntity.ok(
+            new ApiResponse<>(true, "Close friends retrieved successfully", closeFriendService.getCloseFriends())
+        );
+    }
+
+    @PostMapping("/current/close-friends/{userId}")
+    public ResponseEntity<ApiResponse<Void>> addCloseFriend(@PathVariable("userId") Long userId) {
+        closeFriendService.addCloseFriend(userId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Close friend added successfully"));
+    }
+
+    @DeleteMapping("/current/close-friends/{userId}")
+    public ResponseEntity<ApiResponse<Void>> removeCloseFriend(@PathVariable("userId") Long userId) {
+        closeFriendService.removeCloseFriend(userId);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Close friend removed successfully"));
+    }
+
     @GetMapping("/{userId}/followers")
     public ResponseEntity<ApiResponse<Object>> getFollowers(
             @PathVariable("userId") Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         return ResponseEntity.ok(
-            new ApiResponse<>(true, "Followers retrieved successfully", null)
+            new ApiResponse<>(true, "Followers retrieved successfully",
+                followService.getFollowerIds(userId, page, size))
         );
     }
 
@@ -136,7 +155,8 @@ public class UserController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         return ResponseEntity.ok(
-            new ApiResponse<>(true, "Following list retrieved successfully", null)
+            new ApiResponse<>(true, "Following list retrieved successfully",
+                followService.getFollowingIds(userId, page, size))
         );
     }
     
@@ -0,0 +1,36 @@
+package com.zone01oujda.moblogging.user.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Member of the current user's close-friends list
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CloseFriendDto {
+
+    /**
+     * ID of the friend
+     */
+    public Long id;
+
+    /**
+     * Username of the friend
+     */
+    public String username;
+
+    /**
+     * Profile picture path of the friend
+     */
+    public String profilePicture;
+
+    /**
+     * When the friend was added
+     */
+    public LocalDateTime addedAt;
+}
@@ -1,5 +1,40 @@
 package com.zone01oujda.moblogging.user.repository;
 
-public class CloseFriendRepository {
-    
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zone01oujda.moblogging.entity.CloseFriend;
+import com.zone01oujda.moblogging.user.dto.CloseFriendDto;
+
+public interface CloseFriendRepository extends JpaRepository<CloseFriend, Long> {
+    boolean existsByOwnerIdAndFriendId(Long ownerId, Long friendId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CloseFriend cf WHERE cf.owner.id = :ownerId AND cf.friend.id = :friendId")
+    int deleteByOwnerIdAndFriendId(@Param("ownerId") Long ownerId, @Param("friendId") Long friendId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CloseFriend cf WHERE cf.owner.id = :userId OR cf.friend.id = :userId")
+    int deleteByOwnerIdOrFriendId(@Param("userId") Long userId);
+
+    @Query("SELECT cf.owner.id FROM CloseFriend cf WHERE cf.friend.id = :friendId")
+    List<Long> findOwnerIdsByFriendId(@Param("friendId") Long friendId);
+
+    @Query("SELECT cf.friend.id FROM CloseFriend cf WHERE cf.owner.id = :ownerId")
+    List<Long> findFriendIdsByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("""
+        SELECT new com.zone01oujda.moblogging.user.dto.CloseFriendDto(u.id, u.username, u.profilePictureUrl, cf.createdAt)
+        FROM CloseFriend cf JOIN cf.friend u
+        WHERE cf.owner.id = :ownerId
+        ORDER BY u.username
+        """)
+    List<CloseFriendDto> findFriendsByOwnerId(@Param("ownerId") Long ownerId);
 }
@@ -1,8 +1,10 @@
 package com.zone01oujda.moblogging.user.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -18,8 +20,43 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
     @Modifying
     @Transactional
     @Query("DELETE FROM Follow f WHERE f.follower.id = :followerId AND f.following.id = :followingId")
-    void deleteByFollowerIdAndFollowingId(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+    int deleteByFollowerIdAndFollowingId(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
     
     List<Follow> findByFollowingId(Long followingId);
     List<Follow> findByFollowerId(Long followerId);
+
+    long countByFollowingId(Long followingId);
+
+    @Query("SELECT f.follower.id FROM Follow f WHERE f.following.id = :followingId")
+    List<Long> findFollowerIdsByFollowingId(@Param("followingId") Long followingId);
+
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :followerId")
+    List<Long> findFollowingIdsByFollowerId(@Param("followerId") Long followerId);
+
+    /**
+     * Which of the given users the follower follows, in one query for a whole page
+     */
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :followerId AND f.following.id IN :userIds")
+    List<Long> findFollowedIdsAmong(@Param("followerId") Long followerId,
+            @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Keyset page of a user's followers as {id, username} rows, ordered by ID
+     */
+    @Query("""
+        SELECT u.id, u.username FROM Follow f JOIN f.follower u
+        WHERE f.following.id = :followingId AND u.id > :afterId
+        ORDER BY u.id
+        """)
+    List<Object[]> findFollowerBatch(@Param("followingId") Long followingId, @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    @Query("""
+        SELECT f.following.id FROM Follow f
+        WHERE f.following.id IN :userIds
+        GROUP BY f.following.id
+        HAVING COUNT(f) > :threshold
+        """)
+    List<Long> findIdsWithFollowerCountAbove(@Param("userIds") Collection<Long> userIds,
+            @Param("threshold") long threshold);
 }
@@ -3,9 +3,13 @@ package com.zone01oujda.moblogging.user.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.user.enums.Role;
@@ -20,4 +24,82 @@ public interface  UserRepository extends JpaRepository<User, Long> {
     long countByRole(Role role);
     
     List<User> findByRole(Role role);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.followerCount = greatest(u.followerCount + :delta, 0) WHERE u.id = :userId")
+    int adjustFollowerCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.followingCount = greatest(u.followingCount + :delta, 0) WHERE u.id = :userId")
+    int adjustFollowingCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    /**
+     * Take a user out of the counters of everyone on the other side of their
+     * follows, before the user and their follow rows are deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE User u SET u.followingCount = greatest(u.followingCount - 1, 0)
+        WHERE u.id IN (SELECT f.follower.id FROM Follow f WHERE f.following.id = :userId)
+        """)
+    int decrementFollowingCountOfFollowers(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE User u SET u.followerCount = greatest(u.followerCount - 1, 0)
+        WHERE u.id IN (SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId)
+        """)
+    int decrementFollowerCountOfFollowed(@Param("userId") Long userId);
+
+    /**
+     * Ranked search using pg_trgm: exact matches first, then username
+     * prefixes, then username and bio similarity; served by the trigram
+     * indexes created by UserSearchSchema
+     */
+    @Query(value = """
+        SELECT u.* FROM users u
+        WHERE lower(u.username) LIKE :contains
+           OR lower(u.username) % :query
+           OR :query <% lower(coalesce(u.bio, ''))
+           OR lower(u.email) = :query
+        ORDER BY (lower(u.username) = :query OR lower(u.email) = :query) DESC,
+                 (lower(u.username) LIKE :prefix) DESC,
+                 similarity(lower(u.username), :query) DESC,
+                 word_similarity(:query, lower(coalesce(u.bio, ''))) DESC,
+                 u.id
+        """, countQuery = """
+        SELECT count(*) FROM users u
+        WHERE lower(u.username) LIKE :contains
+           OR lower(u.username) % :query
+           OR :query <% lower(coalesce(u.bio, ''))
+           OR lower(u.email) = :query
+        """, nativeQuery = true)
+    Page<User> searchByTrigram(@Param("query") String query, @Param("prefix") String prefix,
+            @Param("contains") String contains, Pageable pageable);
+
+    /**
+     * Ranked search for databases without pg_trgm: substring matches on
+     * username and bio, exact matches first, then username prefixes
+     */
+    @Query(value = """
+        SELECT u.* FROM users u
+        WHERE lower(u.username) LIKE :contains
+           OR lower(coalesce(u.bio, '')) LIKE :contains
+           OR lower(u.email) = :query
+        ORDER BY (lower(u.username) = :query OR lower(u.email) = :query) DESC,
+                 (lower(u.username) LIKE :prefix) DESC,
+                 length(u.username),
+                 u.id
+        """, countQuery = """
+        SELECT count(*) FROM users u
+        WHERE lower(u.username) LIKE :contains
+           OR lower(coalesce(u.bio, '')) LIKE :contains
+           OR lower(u.email) = :query
+        """, nativeQuery = true)
+    Page<User> searchBySubstring(@Param("query") String query, @Param("prefix") String prefix,
+            @Param("contains") String contains, Pageable pageable);
 }
@@ -1,5 +1,230 @@
 package com.zone01oujda.moblogging.user.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zone01oujda.moblogging.entity.CloseFriend;
+import com.zone01oujda.moblogging.entity.User;
+import com.zone01oujda.moblogging.exception.AccessDeniedException;
+import com.zone01oujda.moblogging.exception.BadRequestException;
+import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
+import com.zone01oujda.moblogging.post.enums.PostVisibility;
+import com.zone01oujda.moblogging.user.dto.CloseFriendDto;
+import com.zone01oujda.moblogging.user.repository.CloseFriendRepository;
+import com.zone01oujda.moblogging.user.repository.UserRepository;
+import com.zone01oujda.moblogging.util.SecurityUtil;
+
+/**
+ * Close-friends lists and the post visibility rules built on them
+ * Each author's list is cached as a sorted ID array, loaded on first use and
+ * dropped when the list changes, so checking a whole feed page costs at most
+ * one query per distinct author and usually none.
+ */
+@Service
 public class CloseFriendService {
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(CloseFriendService.class);
+    private static final long[] EMPTY = new long[0];
+
+    private final CloseFriendRepository closeFriendRepository;
+    private final UserRepository userRepository;
+    private final Map<Long, long[]> members;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final List<MembershipListener> listeners = new CopyOnWriteArrayList<>();
+
+    public CloseFriendService(CloseFriendRepository closeFriendRepository, UserRepository userRepository,
+            @Value("${users.close-friends.cache.max-size:20000}") int maxCached) {
+        this.closeFriendRepository = closeFriendRepository;
+        this.userRepository = userRepository;
+        this.members = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > maxCached;
+            }
+        });
+    }
+
+    /**
+     * Get told about every close-friends list change once it is committed
+     * @param listener the listener
+     */
+    public void addListener(MembershipListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Add a user to the current user's close friends
+     * @param friendId the user to add
+     * @throws BadRequestException if the user is the current user or already a close friend
+     * @throws ResourceNotFoundException if the user does not exist
+     */
+    @Transactional
+    public void addCloseFriend(Long friendId) {
+        User owner = getCurrentUser();
+        if (owner.getId().equals(friendId)) {
+            throw new BadRequestException("You cannot add yourself to your close friends");
+        }
+        User friend = userRepository.findById(friendId)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        if (closeFriendRepository.existsByOwnerIdAndFriendId(owner.getId(), friendId)) {
+            throw new BadRequestException("User is already a close friend");
+        }
+        closeFriendRepository.save(new CloseFriend(owner, friend));
+        invalidateAfterCommit(List.of(owner.getId()), friendId);
+    }
+
+    /**
+     * Remove a user from the current user's close friends
+     * @param friendId the user to remove
+     */
+    @Transactional
+    public void removeCloseFriend(Long friendId) {
+        User owner = getCurrentUser();
+        if (closeFriendRepository.deleteByOwnerIdAndFriendId(owner.getId(), friendId) > 0) {
+            invalidateAfterCommit(List.of(owner.getId()), friendId);
+        }
+    }
+
+    /**
+     * Remove a user's own list and their membership in other lists
+     * Must run before the user row is deleted.
+     * @param userId the user being deleted
+     */
+    @Transactional
+    public void removeUser(Long userId) {
+        List<Long> owners = new ArrayList<>(closeFriendRepository.findOwnerIdsByFriendId(userId));
+        owners.add(userId);
+        closeFriendRepository.deleteByOwnerIdOrFriendId(userId);
+        invalidateAfterCommit(owners, null);
+    }
+
+    /**
+     * @return the current user's close friends, by username
+     */
+    public List<CloseFriendDto> getCloseFriends() {
+        return closeFriendRepository.findFriendsByOwnerId(getCurrentUser().getId());
+    }
+
+    /**
+     * @param authorId the list owner
+     * @param userId the user to check
+     * @return true if the user is on the author's close-friends list
+     */
+    public boolean isCloseFriend(Long authorId, Long userId) {
+        if (authorId == null || userId == null) {
+            return false;
+        }
+        return Arrays.binarySearch(membersOf(authorId), userId) >= 0;
+    }
+
+    /**
+     * Whether a viewer may see a post
+     * Public posts are visible to everyone, private posts to their author
+     * only, close-friend posts to their author and the author's close friends.
+     * @param viewerId the viewer ID, null when anonymous
+     * @param authorId the post author ID
+     * @param visibility the post visibility, null meaning public
+     * @return true if the viewer may see the post
+     */
+    public boolean canView(Long viewerId, Long authorId, PostVisibility visibility) {
+        if (visibility == null || visibility == PostVisibility.PUBLIC) {
+            return true;
+        }
+        if (viewerId != null && viewerId.equals(authorId)) {
+            return true;
+        }
+        return visibility == PostVisibility.CLOSEFRIEND && isCloseFriend(authorId, viewerId);
+    }
+
+    private long[] membersOf(Long authorId) {
+        long[] cached = members.get(authorId);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = invalidations.get();
+        long[] loaded = closeFriendRepository.findFriendIdsByOwnerId(authorId).stream()
+            .mapToLong(Long::longValue)
+            .sorted()
+            .toArray();
+        if (loaded.length == 0) {
+            loaded = EMPTY;
+        }
+        synchronized (members) {
+            // A list changed while loading may or may not be included: do not cache
+            if (invalidations.get() == stamp) {
+                members.put(authorId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop cached lists after commit and, when one friend joined or left a
+     * list, tell the listeners about it
+     */
+    private void invalidateAfterCommit(Collection<Long> ownerIds, Long friendId) {
+        Runnable action = () -> {
+            synchronized (members) {
+                invalidations.incrementAndGet();
+                members.keySet().removeAll(ownerIds);
+            }
+            if (friendId != null) {
+                for (Long ownerId : ownerIds) {
+                    notifyListeners(ownerId, friendId);
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void notifyListeners(Long ownerId, Long friendId) {
+        for (MembershipListener listener : listeners) {
+            try {
+                listener.onMembershipChanged(ownerId, friendId);
+            } catch (RuntimeException e) {
+                logger.warn("Close friends listener failed for {} -> {}: {}", ownerId, friendId, e.getMessage());
+            }
+        }
+    }
+
+    private User getCurrentUser() {
+        String username = SecurityUtil.getCurrentUsername();
+        if (username == null) {
+            throw new AccessDeniedException("User not authenticated");
+        }
+        return userRepository.findByUsernameOrEmail(username)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
+    /**
+     * Receives close-friends list changes after they are committed
+     */
+    @FunctionalInterface
+    public interface MembershipListener {
+        void onMembershipChanged(Long ownerId, Long friendId);
+    }
 }
@@ -0,0 +1,62 @@
+package com.zone01oujda.moblogging.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Repairs drift in the follower and following counters of users
+ * The counters are maintained by FollowService; rows changed outside it
+ * (admin deletes, cascades, manual fixes) are brought back in line here.
+ * Users are recounted in ID ranges so no statement locks the whole table,
+ * and only rows whose counts differ are written.
+ */
+@Service
+public class FollowCountReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowCountReconciler.class);
+
+    private static final String MAX_USER_ID = "SELECT coalesce(max(id), 0) FROM users";
+    private static final String RECONCILE_RANGE = """
+        UPDATE users u SET follower_count = c.followers, following_count = c.following
+        FROM (
+            SELECT r.id,
+                (SELECT count(*) FROM follows f WHERE f.following_id = r.id) AS followers,
+                (SELECT count(*) FROM follows f WHERE f.follower_id = r.id) AS following
+            FROM users r
+            WHERE r.id > ? AND r.id <= ?
+        ) c
+        WHERE u.id = c.id AND (u.follower_count <> c.followers OR u.following_count <> c.following)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public FollowCountReconciler(JdbcTemplate jdbcTemplate,
+            @Value("${users.follow-counts.reconcile-batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Recount every user's followers and followings, first run at startup
+     */
+    @Scheduled(fixedDelayString = "${users.follow-counts.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        try {
+            Long maxId = jdbcTemplate.queryForObject(MAX_USER_ID, Long.class);
+            int repaired = 0;
+            for (long from = 0; maxId != null && from < maxId; from += batchSize) {
+                repaired += jdbcTemplate.update(RECONCILE_RANGE, from, from + batchSize);
+            }
+            if (repaired > 0) {
+                logger.info("Repaired follow counters of {} users", repaired);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Follow counter reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+}
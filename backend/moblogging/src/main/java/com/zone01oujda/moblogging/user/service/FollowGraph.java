@@ -0,0 +1,357 @@
+package com.zone01oujda.moblogging.user.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zone01oujda.moblogging.notification.cluster.ClusterMessage;
+import com.zone01oujda.moblogging.notification.cluster.ClusterTransport;
+import com.zone01oujda.moblogging.user.repository.FollowRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory adjacency index of the follow graph
+ * Each user maps to sorted arrays of the IDs they follow and of their
+ * followers, so lookups are a binary search and never load Follow entities.
+ * Arrays are copy-on-write: readers never lock, writers replace the array.
+ * The index is loaded from the database at startup and reloaded periodically
+ * to repair drift; follow changes are applied after their transaction
+ * commits and published over the cluster transport so every node applies
+ * them. Until the first load completes, queries go to the database.
+ */
+@Service
+public class FollowGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraph.class);
+
+    private static final long[] EMPTY = new long[0];
+    private static final String LOAD_EDGES = "SELECT follower_id, following_id FROM follows";
+
+    private final FollowRepository followRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterTransport transport;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<EdgeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object reloadLock = new Object();
+
+    private volatile Map<Long, long[]> following = new ConcurrentHashMap<>();
+    private volatile Map<Long, long[]> followers = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    // Changes committed while a reload is reading, replayed once it is swapped in
+    private List<Edge> pending;
+
+    public FollowGraph(FollowRepository followRepository, JdbcTemplate jdbcTemplate, ClusterTransport transport) {
+        this.followRepository = followRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transport = transport;
+    }
+
+    @PostConstruct
+    public void start() {
+        transport.subscribe(this::receive);
+    }
+
+    /**
+     * Get told about every follow change once it is in the index, local or from another node
+     * @param listener the listener
+     */
+    public void addListener(EdgeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Rebuild the index from the follows table, first run at startup
+     */
+    @Scheduled(fixedDelayString = "${users.follow-graph.reload-interval-ms:3600000}")
+    public void reload() {
+        synchronized (reloadLock) {
+            pending = new ArrayList<>();
+        }
+        try {
+            Map<Long, LongArrayBuilder> out = new HashMap<>();
+            Map<Long, LongArrayBuilder> in = new HashMap<>();
+            int[] edges = new int[1];
+            jdbcTemplate.query(LOAD_EDGES, rs -> {
+                long follower = rs.getLong(1);
+                long followed = rs.getLong(2);
+                out.computeIfAbsent(follower, id -> new LongArrayBuilder()).add(followed);
+                in.computeIfAbsent(followed, id -> new LongArrayBuilder()).add(follower);
+                edges[0]++;
+            });
+            Map<Long, long[]> newFollowing = freeze(out);
+            Map<Long, long[]> newFollowers = freeze(in);
+            synchronized (reloadLock) {
+                following = newFollowing;
+                followers = newFollowers;
+                for (Edge edge : pending) {
+                    apply(edge);
+                }
+                pending = null;
+                loaded = true;
+            }
+            logger.info("Follow graph loaded: {} users, {} edges", newFollowing.size(), edges[0]);
+        } catch (RuntimeException e) {
+            synchronized (reloadLock) {
+                pending = null;
+            }
+            logger.error("Follow graph reload failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true once the index has been loaded and answers from memory
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Record a new follow, applied after the surrounding transaction commits
+     * @param followerId the follower ID
+     * @param followingId the followed user ID
+     */
+    public void onFollow(Long followerId, Long followingId) {
+        afterCommit(List.of(new Edge(followerId, followingId, true)));
+    }
+
+    /**
+     * Record a removed follow, applied after the surrounding transaction commits
+     * @param followerId the follower ID
+     * @param followingId the followed user ID
+     */
+    public void onUnfollow(Long followerId, Long followingId) {
+        afterCommit(List.of(new Edge(followerId, followingId, false)));
+    }
+
+    /**
+     * Record the removal of every follow of a user being deleted, applied
+     * after the surrounding transaction commits
+     * Must run before the user's follow rows are deleted.
+     * @param userId the user being deleted
+     */
+    public void removeUser(Long userId) {
+        List<Edge> edges = new ArrayList<>();
+        for (Long followerId : followRepository.findFollowerIdsByFollowingId(userId)) {
+            edges.add(new Edge(followerId, userId, false));
+        }
+        for (Long followingId : followRepository.findFollowingIdsByFollowerId(userId)) {
+            edges.add(new Edge(userId, followingId, false));
+        }
+        if (!edges.isEmpty()) {
+            afterCommit(edges);
+        }
+    }
+
+    /**
+     * @param followerId the follower ID
+     * @param followingId the followed user ID
+     * @return true if the follower follows the user
+     */
+    public boolean isFollowing(Long followerId, Long followingId) {
+        if (!loaded) {
+            return followRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
+        }
+        return Arrays.binarySearch(following.getOrDefault(followerId, EMPTY), followingId) >= 0;
+    }
+
+    /**
+     * @param followerId the follower ID
+     * @param userIds candidate user IDs
+     * @return those of the candidates the follower follows
+     */
+    public Set<Long> followedAmong(Long followerId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        if (!loaded) {
+            return new HashSet<>(followRepository.findFollowedIdsAmong(followerId, userIds));
+        }
+        long[] followed = following.getOrDefault(followerId, EMPTY);
+        Set<Long> result = new HashSet<>();
+        for (Long userId : userIds) {
+            if (Arrays.binarySearch(followed, userId) >= 0) {
+                result.add(userId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param userId the user ID
+     * @return IDs of the users following the user, ascending; a copy
+     */
+    public long[] getFollowerIds(Long userId) {
+        if (!loaded) {
+            return toArray(followRepository.findFollowerIdsByFollowingId(userId));
+        }
+        return followers.getOrDefault(userId, EMPTY).clone();
+    }
+
+    /**
+     * @param userId the user ID
+     * @return IDs of the users the user follows, ascending; a copy
+     */
+    public long[] getFollowingIds(Long userId) {
+        if (!loaded) {
+            return toArray(followRepository.findFollowingIdsByFollowerId(userId));
+        }
+        return following.getOrDefault(userId, EMPTY).clone();
+    }
+
+    /**
+     * @param userId the user ID
+     * @return number of followers of the user
+     */
+    public int getFollowerCount(Long userId) {
+        if (!loaded) {
+            return (int) followRepository.countByFollowingId(userId);
+        }
+        return followers.getOrDefault(userId, EMPTY).length;
+    }
+
+    private void afterCommit(List<Edge> edges) {
+        Runnable action = () -> {
+            for (Edge edge : edges) {
+                record(edge);
+                transport.publish(
+                    ClusterMessage.follow(nodeId, edge.followerId(), edge.followingId(), edge.added()));
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void receive(ClusterMessage message) {
+        if (message.getKind() != ClusterMessage.Kind.FOLLOW || nodeId.equals(message.getOrigin())) {
+            return;
+        }
+        long[] ids = (long[]) message.getPayload();
+        record(new Edge(ids[0], ids[1], message.isOnline()));
+    }
+
+    private void record(Edge edge) {
+        synchronized (reloadLock) {
+            if (pending != null) {
+                pending.add(edge);
+            }
+            apply(edge);
+        }
+        for (EdgeListener listener : listeners) {
+            try {
+                listener.onEdgeChanged(edge.followerId(), edge.followingId(), edge.added());
+            } catch (RuntimeException e) {
+                logger.warn("Follow graph listener failed for {}: {}", edge, e.getMessage());
+            }
+        }
+    }
+
+    private void apply(Edge edge) {
+        if (edge.added()) {
+            following.compute(edge.followerId(), (id, ids) -> insert(ids, edge.followingId()));
+            followers.compute(edge.followingId(), (id, ids) -> insert(ids, edge.followerId()));
+        } else {
+            following.computeIfPresent(edge.followerId(), (id, ids) -> remove(ids, edge.followingId()));
+            followers.computeIfPresent(edge.followingId(), (id, ids) -> remove(ids, edge.followerId()));
+        }
+    }
+
+    private static long[] insert(long[] ids, long value) {
+        if (ids == null) {
+            return new long[] { value };
+        }
+        int index = Arrays.binarySearch(ids, value);
+        if (index >= 0) {
+            return ids;
+        }
+        int at = -index - 1;
+        long[] grown = new long[ids.length + 1];
+        System.arraycopy(ids, 0, grown, 0, at);
+        grown[at] = value;
+        System.arraycopy(ids, at, grown, at + 1, ids.length - at);
+        return grown;
+    }
+
+    private static long[] remove(long[] ids, long value) {
+        int index = Arrays.binarySearch(ids, value);
+        if (index < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] shrunk = new long[ids.length - 1];
+        System.arraycopy(ids, 0, shrunk, 0, index);
+        System.arraycopy(ids, index + 1, shrunk, index, ids.length - index - 1);
+        return shrunk;
+    }
+
+    private static Map<Long, long[]> freeze(Map<Long, LongArrayBuilder> builders) {
+        Map<Long, long[]> frozen = new ConcurrentHashMap<>(Math.max(16, builders.size() * 4 / 3 + 1));
+        builders.forEach((userId, builder) -> frozen.put(userId, builder.toSortedArray()));
+        return frozen;
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        long[] result = ids.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Receives follow changes after they are applied to the index
+     */
+    @FunctionalInterface
+    public interface EdgeListener {
+        void onEdgeChanged(Long followerId, Long followingId, boolean added);
+    }
+
+    private record Edge(Long followerId, Long followingId, boolean added) {
+    }
+
+    /**
+     * Growable primitive array used while loading
+     */
+    private static final class LongArrayBuilder {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
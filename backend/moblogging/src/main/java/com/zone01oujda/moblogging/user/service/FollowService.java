@@ -1,8 +1,15 @@
 package com.zone01oujda.moblogging.user.service;
 
-import java.util.List;
+import java.util.Arrays;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.zone01oujda.moblogging.entity.Follow;
 import com.zone01oujda.moblogging.entity.User;
@@ -21,14 +28,20 @@ public class FollowService {
     private final FollowRepository followRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
+    private final FollowGraph followGraph;
+    private final int maxPageSize;
 
     public FollowService(FollowRepository followRepository, UserRepository userRepository,
-            NotificationService notificationService) {
+            NotificationService notificationService, FollowGraph followGraph,
+            @Value("${users.follows.max-page-size:100}") int maxPageSize) {
         this.followRepository = followRepository;
         this.userRepository = userRepository;
         this.notificationService = notificationService;
+        this.followGraph = followGraph;
+        this.maxPageSize = Math.max(1, maxPageSize);
     }
 
+    @Transactional
     public void followUser(Long targetUserId) {
         User follower = getCurrentUser();
         if (follower.getId().equals(targetUserId)) {
@@ -37,11 +50,20 @@ public class FollowService {
         User target = userRepository.findById(targetUserId)
             .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        if (followRepository.existsByFollowerIdAndFollowingId(follower.getId(), targetUserId)) {
+        if (followGraph.isFollowing(follower.getId(), targetUserId)) {
             throw new BadRequestException("Already following this user");
         }
 
-        followRepository.save(new Follow(follower, target));
+        try {
+            followRepository.save(new Follow(follower, target));
+        } catch (DataIntegrityViolationException e) {
+            // Followed concurrently, or on a node whose index has not caught up yet
+            throw new BadRequestException("Already following this user");
+        }
+        userRepository.adjustFollowingCount(follower.getId(), 1);
+        userRepository.adjustFollowerCount(targetUserId, 1);
+        // Cached timelines are dropped by FeedService once the graph has the edge
+        followGraph.onFollow(follower.getId(), targetUserId);
         notificationService.createNotification(
             target,
             NotificationType.FOLLOW,
@@ -49,17 +71,43 @@ public class FollowService {
         );
     }
 
+    @Transactional
     public void unfollowUser(Long targetUserId) {
         User follower = getCurrentUser();
-        followRepository.deleteByFollowerIdAndFollowingId(follower.getId(), targetUserId);
+        if (followRepository.deleteByFollowerIdAndFollowingId(follower.getId(), targetUserId) > 0) {
+            userRepository.adjustFollowingCount(follower.getId(), -1);
+            userRepository.adjustFollowerCount(targetUserId, -1);
+            followGraph.onUnfollow(follower.getId(), targetUserId);
+        }
+    }
+
+    /**
+     * Get a page of the IDs of a user's followers, served from the follow graph
+     * @param userId the user ID
+     * @param page the page number
+     * @param size the page size
+     * @return page of follower IDs, ascending
+     */
+    public Page<Long> getFollowerIds(Long userId, int page, int size) {
+        return pageOf(followGraph.getFollowerIds(userId), page, size);
     }
 
-    public List<Follow> getFollowers(Long userId) {
-        return followRepository.findByFollowingId(userId);
+    /**
+     * Get a page of the IDs of the users a user follows, served from the follow graph
+     * @param userId the user ID
+     * @param page the page number
+     * @param size the page size
+     * @return page of followed user IDs, ascending
+     */
+    public Page<Long> getFollowingIds(Long userId, int page, int size) {
+        return pageOf(followGraph.getFollowingIds(userId), page, size);
     }
 
-    public List<Follow> getFollowing(Long userId) {
-        return followRepository.findByFollowerId(userId);
+    private Page<Long> pageOf(long[] ids, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), maxPageSize));
+        int from = (int) Math.min(pageable.getOffset(), ids.length);
+        int to = Math.min(from + pageable.getPageSize(), ids.length);
+        return new PageImpl<>(Arrays.stream(ids, from, to).boxed().toList(), pageable, ids.length);
     }
 
     private User getCurrentUser() {
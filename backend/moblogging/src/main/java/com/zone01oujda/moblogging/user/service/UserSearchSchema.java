@@ -0,0 +1,54 @@
+package com.zone01oujda.moblogging.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes behind user search, which Hibernate cannot express
+ * Trigram GIN indexes serve substring and similarity matches on username and
+ * bio. When the pg_trgm extension cannot be installed, search falls back to
+ * plain substring matching.
+ */
+@Component
+public class UserSearchSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchSchema.class);
+
+    private static final String[] TRIGRAM_DDL = {
+        "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+        "CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops)",
+        "CREATE INDEX IF NOT EXISTS idx_users_bio_trgm ON users USING gin (lower(coalesce(bio, '')) gin_trgm_ops)"
+    };
+    private static final String EMAIL_INDEX = "CREATE INDEX IF NOT EXISTS idx_users_email_lower ON users (lower(email))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean trigramAvailable;
+
+    public UserSearchSchema(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        try {
+            jdbcTemplate.execute(EMAIL_INDEX);
+            for (String ddl : TRIGRAM_DDL) {
+                jdbcTemplate.execute(ddl);
+            }
+            trigramAvailable = true;
+        } catch (RuntimeException e) {
+            logger.warn("Trigram user search unavailable, using substring search: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return true once pg_trgm and the trigram indexes are in place
+     */
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+}
@@ -4,15 +4,16 @@ import java.net.MalformedURLException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -20,52 +21,70 @@ import com.zone01oujda.moblogging.entity.User;
 import com.zone01oujda.moblogging.exception.AccessDeniedException;
 import com.zone01oujda.moblogging.exception.ConflictException;
 import com.zone01oujda.moblogging.exception.ResourceNotFoundException;
+import com.zone01oujda.moblogging.media.service.ImageVariantService;
+import com.zone01oujda.moblogging.media.service.MediaStorageService;
+import com.zone01oujda.moblogging.security.PrincipalCache;
 import com.zone01oujda.moblogging.user.dto.UpdateUserDto;
 import com.zone01oujda.moblogging.user.dto.UserDto;
-import com.zone01oujda.moblogging.user.repository.FollowRepository;
 import com.zone01oujda.moblogging.user.repository.UserRepository;
-import com.zone01oujda.moblogging.util.FileUploadUtil;
 import com.zone01oujda.moblogging.util.SecurityUtil;
 
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
-    private final FollowRepository followRepository;
-    private final FileUploadUtil fileUploadUtil;
+    private final FollowGraph followGraph;
+    private final MediaStorageService mediaStorageService;
+    private final ImageVariantService imageVariantService;
+    private final PrincipalCache principalCache;
+    private final UserSearchSchema userSearchSchema;
     private final String uploadDir;
-
-    public UserService(UserRepository userRepository, FollowRepository followRepository, FileUploadUtil fileUploadUtil,
-            @Value("${files.uploadDirectory}") String uploadDir) {
+    private final int maxPageSize;
+    private final int maxQueryLength;
+
+    public UserService(UserRepository userRepository, FollowGraph followGraph, MediaStorageService mediaStorageService,
+            ImageVariantService imageVariantService, PrincipalCache principalCache, UserSearchSchema userSearchSchema,
+            @Value("${files.uploadDirectory}") String uploadDir,
+            @Value("${users.search.max-page-size:50}") int maxPageSize,
+            @Value("${users.search.max-query-length:64}") int maxQueryLength) {
         this.userRepository = userRepository;
-        this.followRepository = followRepository;
-        this.fileUploadUtil = fileUploadUtil;
+        this.followGraph = followGraph;
+        this.mediaStorageService = mediaStorageService;
+        this.imageVariantService = imageVariantService;
+        this.principalCache = principalCache;
+        this.userSearchSchema = userSearchSchema;
         this.uploadDir = uploadDir;
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.maxQueryLength = Math.max(1, maxQueryLength);
     }
 
+    /**
+     * Search users by username, bio or exact email, best matches first
+     * Exact matches rank first, then username prefixes, then similarity.
+     * @param page the page number
+     * @param size the page size, capped
+     * @param search the search text, all users when blank
+     * @return page of users
+     */
     public Page<UserDto> getAllUsers(int page, int size, String search) {
-        Pageable pageable = PageRequest.of(page, size);
-        List<User> allUsers = userRepository.findAll();
-        
-        List<User> filtered = allUsers.stream()
-                .filter(user -> {
-                    if (search == null || search.trim().isEmpty()) {
-                        return true;
-                    }
-                    String lowerSearch = search.toLowerCase().trim();
-                    return user.getUsername().toLowerCase().contains(lowerSearch) ||
-                           user.getEmail().toLowerCase().contains(lowerSearch) ||
-                           (user.getBio() != null && user.getBio().toLowerCase().contains(lowerSearch));
-                })
-                .collect(Collectors.toList());
-        
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtered.size());
-        List<UserDto> pageContent = filtered.subList(start, end).stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
-        
-        return new PageImpl<>(pageContent, pageable, filtered.size());
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), maxPageSize));
+        String query = search != null ? search.trim().toLowerCase(Locale.ROOT) : "";
+        if (query.length() > maxQueryLength) {
+            query = query.substring(0, maxQueryLength);
+        }
+
+        Page<User> users;
+        if (query.isEmpty()) {
+            users = userRepository.findAll(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                    Sort.by("id")));
+        } else {
+            String escaped = escapeLike(query);
+            users = userSearchSchema.isTrigramAvailable()
+                    ? userRepository.searchByTrigram(query, escaped + "%", "%" + escaped + "%", pageable)
+                    : userRepository.searchBySubstring(query, escaped + "%", "%" + escaped + "%", pageable);
+        }
+
+        return toDtoPage(users);
     }
 
     public UserDto getUserById(Long userId) {
@@ -101,13 +120,17 @@ public class UserService {
             user.setBio(trimToNull(dto.getBio()));
         }
 
+        String replacedPicture = null;
         MultipartFile profilePicture = dto.getProfilePicture();
         if (profilePicture != null && !profilePicture.isEmpty()) {
-            String uploadedPath = fileUploadUtil.upload(profilePicture);
+            replacedPicture = user.getProfilePictureUrl();
+            String uploadedPath = mediaStorageService.store(profilePicture);
             user.setProfilePictureUrl(uploadedPath);
         }
 
         User saved = userRepository.save(user);
+        mediaStorageService.releaseAll(replacedPicture);
+        principalCache.invalidate(saved.getId());
         return toDto(saved);
     }
 
@@ -116,7 +139,7 @@ public class UserService {
         return updateUser(currentUser.getId(), dto);
     }
 
-    public Resource getProfilePicture(Long userId) {
+    public Resource getProfilePicture(Long userId, String variant) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         String picturePath = user.getProfilePictureUrl();
@@ -141,7 +164,7 @@ public class UserService {
         }
 
         try {
-            Resource resource = new UrlResource(normalizedFile.toUri());
+            Resource resource = new UrlResource(imageVariantService.select(normalizedFile, variant).toUri());
             if (!resource.exists()) {
                 throw new ResourceNotFoundException("Profile picture not found");
             }
@@ -167,8 +190,30 @@ public class UserService {
     private UserDto toDtoWithFollowStatus(User user, User currentUser) {
         boolean isFollowing = false;
         if (currentUser != null && !currentUser.getId().equals(user.getId())) {
-            isFollowing = followRepository.existsByFollowerIdAndFollowingId(currentUser.getId(), user.getId());
+            isFollowing = followGraph.isFollowing(currentUser.getId(), user.getId());
         }
+        return toDto(user, isFollowing);
+    }
+
+    /**
+     * Map a page of users, resolving the viewer once and the follow status
+     * of the whole page in one lookup
+     */
+    private Page<UserDto> toDtoPage(Page<User> users) {
+        Set<Long> followed = Set.of();
+        User currentUser = users.hasContent() ? getCurrentUserEntityOrNull() : null;
+        if (currentUser != null) {
+            List<Long> userIds = users.getContent().stream()
+                    .map(User::getId)
+                    .filter(id -> !id.equals(currentUser.getId()))
+                    .toList();
+            followed = followGraph.followedAmong(currentUser.getId(), userIds);
+        }
+        Set<Long> followedIds = followed;
+        return users.map(user -> toDto(user, followedIds.contains(user.getId())));
+    }
+
+    private UserDto toDto(User user, boolean isFollowing) {
         return new UserDto(
                 user.getId(),
                 user.getUsername(),
@@ -190,6 +235,10 @@ public class UserService {
         }
     }
 
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     private String trimToNull(String value) {
         if (value == null) {
             return null;
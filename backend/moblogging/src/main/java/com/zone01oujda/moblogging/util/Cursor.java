@@ -0,0 +1,66 @@
+package com.zone01oujda.moblogging.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.zone01oujda.moblogging.exception.BadRequestException;
+
+/**
+ * Opaque keyset pagination cursor made of a (createdAt, id) pair
+ */
+public final class Cursor {
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    private Cursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * Encode a position into an opaque cursor string
+     * @param createdAt creation time of the last returned row
+     * @param id ID of the last returned row
+     * @return URL-safe cursor string
+     */
+    public static String encode(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor string
+     * @param value the cursor sent by the client
+     * @return the decoded cursor, or null for a blank value (first page)
+     * @throws BadRequestException if the cursor is malformed
+     */
+    public static Cursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator <= 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new Cursor(
+                LocalDateTime.parse(raw.substring(0, separator)),
+                Long.parseLong(raw.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -1,9 +1,21 @@
 package com.zone01oujda.moblogging.util;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -14,6 +26,9 @@ import com.zone01oujda.moblogging.exception.BadRequestException;
 @Component
 public class FileUploadUtil {
 
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    private static final String STAGING_DIR = ".staging";
+
     private final String uploadDir;
     private final MediaValidator mediaValidator;
 
@@ -24,41 +39,112 @@ public class FileUploadUtil {
         this.uploadDir = uploadDir;
     }
 
-    public String upload(MultipartFile file) {
+    /**
+     * Validate an upload and stream it into the staging area, hashing it on the way
+     * @param file the uploaded file
+     * @return the staged file with its SHA-256 digest and detected type
+     * @throws BadRequestException if the file is empty, too large or of an unsupported type
+     */
+    public StagedFile stage(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new BadRequestException("File is empty");
         }
-        
-        try {
-            String type = mediaValidator.detectMimeType(file);
-            String subDir = type.startsWith("image") ? "images" : "videos";
-            
+
+        if (!mediaValidator.isValidFileSize(file)) {
+            throw new BadRequestException("File exceeds the maximum size of " + mediaValidator.getMaxFileSize() + " bytes");
+        }
+
+        MessageDigest sha256 = newDigest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+            byte[] header = mediaValidator.readHeader(in);
+            String type = mediaValidator.detectMimeType(header, file.getOriginalFilename());
+
             if (!type.startsWith("image") && !type.startsWith("video")) {
                 throw new BadRequestException("Unsupported file type: " + type);
             }
-            
-            Path path = Paths.get(uploadDir, subDir);
-            if (!Files.exists(path)) {
-                Files.createDirectories(path);
+
+            Path staging = Paths.get(uploadDir, STAGING_DIR);
+            Files.createDirectories(staging);
+            Path stagedPath = staging.resolve(mediaValidator.generateSafeFileName());
+            long size = write(stagedPath, header, in);
+
+            return new StagedFile(stagedPath, HexFormat.of().formatHex(sha256.digest()), type, size);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading/writing file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Move a staged file to its content-addressed location
+     * If a file with the same digest is already stored, the staged copy is discarded.
+     * @param staged the staged file
+     * @return the public path of the stored file
+     */
+    public String publish(StagedFile staged) {
+        String subDir = staged.getContentType().startsWith("image") ? "images" : "videos";
+        String shard = staged.getDigest().substring(0, 2);
+        String fileName = staged.getDigest() + mediaValidator.extensionFor(staged.getContentType());
+        try {
+            Path dir = Paths.get(uploadDir, subDir, shard);
+            Files.createDirectories(dir);
+            Path target = dir.resolve(fileName);
+            if (Files.exists(target)) {
+                discard(staged);
+            } else {
+                try {
+                    Files.move(staged.getPath(), target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    discard(staged);
+                }
             }
-            
-            String newName = mediaValidator.generateSafeFileName();
-            String originalFileName = file.getOriginalFilename();
-            String fileExtension = getFileExtension(originalFileName);
-            
-            Path uploadPath = path.resolve(newName + fileExtension);
-            Files.write(uploadPath, file.getBytes());
-
-            String webBase = uploadDir.startsWith("/") ? uploadDir : "/" + uploadDir;
-            if (webBase.endsWith("/")) {
-                webBase = webBase.substring(0, webBase.length() - 1);
+        } catch (IOException e) {
+            discard(staged);
+            throw new RuntimeException("Error storing file: " + e.getMessage(), e);
+        }
+
+        String webBase = uploadDir.startsWith("/") ? uploadDir : "/" + uploadDir;
+        if (webBase.endsWith("/")) {
+            webBase = webBase.substring(0, webBase.length() - 1);
+        }
+        return webBase + "/" + subDir + "/" + shard + "/" + fileName;
+    }
+
+    /**
+     * Remove a staged file that will not be published
+     * @param staged the staged file
+     */
+    public void discard(StagedFile staged) {
+        try {
+            Files.deleteIfExists(staged.getPath());
+        } catch (IOException ignored) {
+            // Best-effort cleanup of the staging area
+        }
+    }
+
+    /**
+     * Write the already read header, then stream the rest of the input to disk
+     * through a file channel, so memory use does not depend on the file size
+     * @return the number of bytes written
+     */
+    private long write(Path target, byte[] header, InputStream rest) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                ReadableByteChannel src = Channels.newChannel(rest)) {
+            ByteBuffer head = ByteBuffer.wrap(header);
+            while (head.hasRemaining()) {
+                out.write(head);
             }
-            return webBase + "/" + subDir + "/" + newName + fileExtension;
+            long position = header.length;
+            long transferred;
+            while ((transferred = out.transferFrom(src, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+            }
+            return position;
         } catch (IOException e) {
-            throw new RuntimeException("Error reading/writing file: " + e.getMessage(), e);
+            Files.deleteIfExists(target);
+            throw e;
         }
     }
-    
+
     public void delete(String filePath) {
         try {
             Path path = Paths.get(filePath);
@@ -69,11 +155,45 @@ public class FileUploadUtil {
             throw new RuntimeException("Error deleting file: " + e.getMessage(), e);
         }
     }
-    
-    private String getFileExtension(String fileName) {
-        if (fileName == null || fileName.lastIndexOf(".") == -1) {
-            return "";
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * An upload written to the staging area, not yet visible under its public path
+     */
+    public static final class StagedFile {
+        private final Path path;
+        private final String digest;
+        private final String contentType;
+        private final long size;
+
+        StagedFile(Path path, String digest, String contentType, long size) {
+            this.path = path;
+            this.digest = digest;
+            this.contentType = contentType;
+            this.size = size;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getSize() {
+            return size;
         }
-        return fileName.substring(fileName.lastIndexOf("."));
     }
 }
@@ -1,6 +1,8 @@
 package com.zone01oujda.moblogging.util;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -16,6 +18,11 @@ import jakarta.annotation.PostConstruct;
  */
 @Component
 public class MediaValidator {
+
+    /**
+     * Number of leading bytes inspected for MIME detection
+     */
+    public static final int SNIFF_LENGTH = 64 * 1024;
     
     private static final Set<String> ALLOWED_IMAGE_TYPES = Set.of(
         "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp"
@@ -23,6 +30,11 @@ public class MediaValidator {
     private static final Set<String> ALLOWED_VIDEO_TYPES = Set.of(
         "video/mp4", "video/mpeg", "video/quicktime", "video/x-msvideo", "video/webm"
     );
+    private static final Map<String, String> EXTENSIONS = Map.of(
+        "image/jpeg", ".jpg", "image/jpg", ".jpg", "image/png", ".png", "image/gif", ".gif",
+        "image/webp", ".webp", "video/mp4", ".mp4", "video/mpeg", ".mpeg", "video/quicktime", ".mov",
+        "video/x-msvideo", ".avi", "video/webm", ".webm"
+    );
     
     private Tika tika;
     private long maxFileSize;
@@ -47,7 +59,38 @@ public class MediaValidator {
         if (file == null) {
             throw new IllegalArgumentException("File cannot be null");
         }
-        return tika.detect(file.getBytes(), file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return detectMimeType(readHeader(in), file.getOriginalFilename());
+        }
+    }
+
+    /**
+     * Detect MIME type from the leading bytes of a file
+     * @param header the first bytes of the file, see {@link #readHeader(InputStream)}
+     * @param fileName the original file name, used as a hint
+     * @return the detected MIME type
+     */
+    public String detectMimeType(byte[] header, String fileName) {
+        return tika.detect(header, fileName);
+    }
+
+    /**
+     * Read the bounded header used for MIME sniffing
+     * @param in the stream, positioned at the start of the file
+     * @return up to {@value #SNIFF_LENGTH} leading bytes
+     * @throws IOException if an error occurs while reading
+     */
+    public byte[] readHeader(InputStream in) throws IOException {
+        return in.readNBytes(SNIFF_LENGTH);
+    }
+
+    /**
+     * Get the file extension used to store a MIME type
+     * @param mimeType the detected MIME type
+     * @return the extension including the dot, or an empty string if unknown
+     */
+    public String extensionFor(String mimeType) {
+        return EXTENSIONS.getOrDefault(mimeType, "");
     }
 
     /**
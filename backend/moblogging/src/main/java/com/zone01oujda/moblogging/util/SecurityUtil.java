@@ -4,6 +4,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import com.zone01oujda.moblogging.security.CustomUserDetails;
+
 public class SecurityUtil {
     
     private SecurityUtil() {
@@ -26,6 +28,18 @@ public class SecurityUtil {
         return null;
     }
     
+    /**
+     * Get the current authenticated user's ID without a database lookup
+     * @return ID of the current authenticated user, or null if not authenticated
+     */
+    public static Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails principal) {
+            return principal.getId();
+        }
+        return null;
+    }
+
     /**
      * Check if the user is authenticated
      * @return true if user is authenticated, false otherwise
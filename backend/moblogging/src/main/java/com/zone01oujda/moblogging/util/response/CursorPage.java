@@ -0,0 +1,58 @@
+package com.zone01oujda.moblogging.util.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import com.zone01oujda.moblogging.util.Cursor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Slice of results for keyset (cursor) pagination
+ * Unlike Page, it carries no total count
+ * @param <T> the type of the items
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * Items of this slice
+     */
+    private List<T> items;
+
+    /**
+     * Cursor to pass back for the next slice, null when there is none
+     */
+    private String nextCursor;
+
+    /**
+     * Whether more items exist after this slice
+     */
+    private boolean hasNext;
+
+    /**
+     * Build a slice from rows fetched with a limit of size + 1
+     * @param rows the fetched rows
+     * @param size the requested slice size, at least 1
+     * @param createdAt extracts the creation time of a row
+     * @param id extracts the ID of a row
+     * @param mapper converts a row to its DTO
+     * @return the cursor page
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int size,
+            Function<E, LocalDateTime> createdAt, Function<E, Long> id, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> slice = hasNext ? rows.subList(0, size) : rows;
+        String next = null;
+        if (hasNext && !slice.isEmpty()) {
+            E last = slice.get(slice.size() - 1);
+            next = Cursor.encode(createdAt.apply(last), id.apply(last));
+        }
+        return new CursorPage<>(slice.stream().map(mapper).toList(), next, hasNext);
+    }
+}
@@ -0,0 +1,137 @@
+package com.zone01oujda.moblogging.notification.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.zone01oujda.moblogging.notification.dto.UnreadCountDto;
+import com.zone01oujda.moblogging.notification.websocket.PresenceTracker;
+import com.zone01oujda.moblogging.notification.websocket.StompPrincipal;
+
+/**
+ * Boots two nodes in one JVM, joined by the loopback transport, and checks
+ * that user messages and broadcasts cross between them
+ */
+class ClusterMessageRouterTests {
+
+	private String channel;
+	private ConfigurableApplicationContext nodeA;
+	private ConfigurableApplicationContext nodeB;
+
+	@BeforeEach
+	void startNodes() {
+		channel = "test-" + UUID.randomUUID();
+		nodeA = startNode();
+		nodeB = startNode();
+	}
+
+	@AfterEach
+	void stopNodes() {
+		nodeA.close();
+		nodeB.close();
+	}
+
+	@Test
+	void userMessageReachesTheNodeHoldingTheSession() {
+		connect(nodeB, "s1", "alice", 1L);
+
+		nodeA.getBean(ClusterMessageRouter.class).sendToUser("alice", "/queue/notifications", new UnreadCountDto(3));
+
+		assertEquals(List.of("/user/alice/queue/notifications"), sent(nodeB));
+		assertTrue(sent(nodeA).isEmpty());
+	}
+
+	@Test
+	void presenceIsSharedAndSyncedToLateNodes() {
+		connect(nodeB, "s1", "alice", 1L);
+		ConfigurableApplicationContext nodeC = startNode();
+		try {
+			assertTrue(nodeA.getBean(ClusterMessageRouter.class).isOnline("alice"));
+			assertTrue(nodeC.getBean(ClusterMessageRouter.class).isOnline("alice"));
+
+			nodeB.getBean(PresenceTracker.class).onDisconnect(
+				new SessionDisconnectEvent(this, connectMessage("s1", null), "s1", CloseStatus.NORMAL));
+
+			assertFalse(nodeA.getBean(ClusterMessageRouter.class).isOnline("alice"));
+			assertFalse(nodeC.getBean(ClusterMessageRouter.class).isOnline("alice"));
+		} finally {
+			nodeC.close();
+		}
+	}
+
+	@Test
+	void broadcastReachesEveryNode() {
+		nodeA.getBean(ClusterMessageRouter.class).broadcast("/topic/notifications", new UnreadCountDto(0));
+
+		assertEquals(List.of("/topic/notifications"), sent(nodeA));
+		assertEquals(List.of("/topic/notifications"), sent(nodeB));
+	}
+
+	private ConfigurableApplicationContext startNode() {
+		return new SpringApplicationBuilder(NodeConfig.class)
+			.web(WebApplicationType.NONE)
+			.properties("notifications.cluster.channel=" + channel, "spring.main.banner-mode=off")
+			.run();
+	}
+
+	private static void connect(ConfigurableApplicationContext node, String sessionId, String username, Long userId) {
+		StompPrincipal user = new StompPrincipal(username, userId);
+		node.getBean(PresenceTracker.class).onConnected(
+			new SessionConnectedEvent(ClusterMessageRouterTests.class, connectMessage(sessionId, user), user));
+	}
+
+	private static Message<byte[]> connectMessage(String sessionId, StompPrincipal user) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+		accessor.setSessionId(sessionId);
+		accessor.setUser(user);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private static List<String> sent(ConfigurableApplicationContext node) {
+		return node.getBean(SentMessages.class).destinations;
+	}
+
+	static class SentMessages {
+		final List<String> destinations = new CopyOnWriteArrayList<>();
+	}
+
+	@Configuration
+	@Import({ PresenceTracker.class, LoopbackClusterTransport.class, ClusterMessageRouter.class })
+	static class NodeConfig {
+
+		@Bean
+		SentMessages sentMessages() {
+			return new SentMessages();
+		}
+
+		@Bean
+		SimpMessagingTemplate messagingTemplate(SentMessages sentMessages) {
+			return new SimpMessagingTemplate((message, timeout) -> {
+				sentMessages.destinations.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+				return true;
+			});
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.zone01oujda.moblogging.user.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zone01oujda.moblogging.entity.User;
+import com.zone01oujda.moblogging.media.service.ImageVariantService;
+import com.zone01oujda.moblogging.media.service.MediaStorageService;
+import com.zone01oujda.moblogging.notification.cluster.ClusterTransport;
+import com.zone01oujda.moblogging.security.PrincipalCache;
+import com.zone01oujda.moblogging.user.dto.UserDto;
+import com.zone01oujda.moblogging.user.repository.FollowRepository;
+import com.zone01oujda.moblogging.user.repository.UserRepository;
+
+/**
+ * Checks that a page of users costs a fixed number of queries, whatever its size
+ */
+class UserServiceTests {
+
+	private static final int PAGE_SIZE = 50;
+
+	private UserRepository userRepository;
+	private FollowRepository followRepository;
+	private UserService userService;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		followRepository = mock(FollowRepository.class);
+		UserSearchSchema userSearchSchema = mock(UserSearchSchema.class);
+		when(userSearchSchema.isTrigramAvailable()).thenReturn(true);
+		// Not loaded yet, so follow status goes to the repository
+		FollowGraph followGraph = new FollowGraph(followRepository, mock(JdbcTemplate.class),
+				mock(ClusterTransport.class));
+		userService = new UserService(userRepository, followGraph, mock(MediaStorageService.class),
+				mock(ImageVariantService.class), mock(PrincipalCache.class), userSearchSchema, "uploads",
+				PAGE_SIZE, 64);
+
+		List<User> users = new ArrayList<>();
+		for (long id = 1; id <= PAGE_SIZE; id++) {
+			users.add(user(id, "al" + id));
+		}
+		Page<User> page = new PageImpl<>(users, PageRequest.of(0, PAGE_SIZE), 120);
+		when(userRepository.searchByTrigram(eq("al"), anyString(), anyString(), any())).thenReturn(page);
+	}
+
+	@AfterEach
+	void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void searchPageResolvesViewerAndFollowStatusOnce() {
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken("viewer", null, List.of()));
+		when(userRepository.findByUsernameOrEmail("viewer")).thenReturn(Optional.of(user(100L, "viewer")));
+		when(followRepository.findFollowedIdsAmong(eq(100L), anyCollection())).thenReturn(List.of(2L, 7L));
+
+		Page<UserDto> result = userService.getAllUsers(0, PAGE_SIZE, "Al");
+
+		assertEquals(PAGE_SIZE, result.getNumberOfElements());
+		assertTrue(result.getContent().get(1).isFollowing());
+		assertTrue(result.getContent().get(6).isFollowing());
+		assertFalse(result.getContent().get(0).isFollowing());
+		verify(userRepository, times(1)).searchByTrigram(eq("al"), anyString(), anyString(), any());
+		verify(userRepository, times(1)).findByUsernameOrEmail("viewer");
+		verify(followRepository, times(1)).findFollowedIdsAmong(eq(100L), anyCollection());
+		verifyNoMoreInteractions(userRepository, followRepository);
+	}
+
+	@Test
+	void anonymousSearchPageRunsOnlyTheSearch() {
+		Page<UserDto> result = userService.getAllUsers(0, PAGE_SIZE, "al");
+
+		assertEquals(PAGE_SIZE, result.getNumberOfElements());
+		assertFalse(result.getContent().get(0).isFollowing());
+		verify(userRepository, times(1)).searchByTrigram(eq("al"), anyString(), anyString(), any());
+		verifyNoMoreInteractions(userRepository);
+		verifyNoInteractions(followRepository);
+	}
+
+	private static User user(Long id, String username) {
+		User user = new User(username, username + "@example.com", "password");
+		ReflectionTestUtils.setField(user, "id", id);
+		return user;
+	}
+}
@@ -42,7 +42,7 @@ import { NotificationService } from '../../services/notification.service';
                 <span class="badge" [class]="badgeClass(n.type)">{{ n.type }}</span>
                 {{ n.message || 'Notification' }}
               </h6>
-              <small class="text-secondary">{{ n.createdAt | date:'short' }}</small>
+              <small class="text-secondary">{{ (n.updatedAt || n.createdAt) | date:'short' }}</small>
             </div>
             <div class="d-flex gap-2">
               <button
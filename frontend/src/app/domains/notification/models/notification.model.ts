@@ -7,6 +7,7 @@ export interface Notification {
   type: NotificationType | string;
   isRead: boolean;
   createdAt: string;
+  updatedAt?: string;
   contentId?: number;
   actor?: {
     id: number;